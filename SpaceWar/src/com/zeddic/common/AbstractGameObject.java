@@ -1,5 +1,7 @@
 package com.zeddic.common;
 
+import com.zeddic.common.opengl.RenderSnapshot;
+
 public abstract class AbstractGameObject implements GameObject {
 
   /** Whether an object should be drawn and updated. */
@@ -11,6 +13,12 @@ public abstract class AbstractGameObject implements GameObject {
   /** Whether an object was obtained from an object pool. */
   public boolean taken = false;
 
+  /**
+   * Whether an enabled object is idle and may skip updates until something
+   * wakes it. Sleeping objects are still drawn.
+   */
+  public boolean sleeping = false;
+
   public void enable() {
     setEnabled(true);
   }
@@ -29,5 +37,13 @@ public abstract class AbstractGameObject implements GameObject {
   public void reset() {
     // Default to doing nothing.
   }
+  
+  /**
+   * Records what should be drawn for this object into the given snapshot.
+   * Called on the same thread as update().
+   */
+  public void snapshot(RenderSnapshot snapshot) {
+    // Default to doing nothing.
+  }
 }
 
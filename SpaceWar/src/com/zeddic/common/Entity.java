@@ -1,7 +1,5 @@
 package com.zeddic.common;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.collision.CollideBehavior;
 import com.zeddic.war.collision.CollideComponent;
@@ -19,6 +17,12 @@ public abstract class Entity extends AbstractGameObject {
   public Vector2d velocity;
   public CollideComponent collide;
 
+  /** Position and angle as of the previous update. Used to interpolate draws. */
+  public float prevX;
+  public float prevY;
+  public float prevAngle;
+  private boolean hasPrevious;
+
   public Entity() {
     this(0, 0);
   }
@@ -34,6 +38,47 @@ public abstract class Entity extends AbstractGameObject {
     this.collide = new CollideComponent(this, CollideBehavior.NONE);
   }
   
+  @Override
+  public void setEnabled(boolean enabled) {
+    super.setEnabled(enabled);
+    
+    // Objects are often placed right before or after being enabled. Don't
+    // interpolate from wherever they were when last in use.
+    hasPrevious = false;
+    wake();
+  }
+  
+  /**
+   * Stops updating the entity until {@link #wake()} is called. While asleep,
+   * the entity is told about any other entity entering a collision cell
+   * within the given radius through {@link #onWatchedCellEntered}, so it
+   * can decide whether to wake up.
+   */
+  public void sleep(float watchRadius) {
+    if (sleeping) {
+      return;
+    }
+    sleeping = true;
+    collide.watch(watchRadius);
+  }
+  
+  /** Resumes updating a sleeping entity. */
+  public void wake() {
+    if (!sleeping) {
+      return;
+    }
+    sleeping = false;
+    collide.unwatch();
+  }
+  
+  /**
+   * Called while sleeping whenever another entity moves into or within a
+   * watched cell. Does nothing by default.
+   */
+  public void onWatchedCellEntered(Entity other) {
+    // Do nothing.
+  }
+  
   public void setScale(float scale) {
     if (scale == this.scale) {
       return;
@@ -67,6 +112,8 @@ public abstract class Entity extends AbstractGameObject {
   }
 
   public void update(long time) {
+    savePreviousState();
+
     float timeFraction = (float) time / TIME_SCALER;
     float dX = velocity.x * timeFraction;
     float dY = velocity.y * timeFraction;
@@ -76,9 +123,39 @@ public abstract class Entity extends AbstractGameObject {
     collide.update(time);
   }
 
-  @Override
-  public void draw(GL10 gl) {
-    // Leave drawing to implementing classes.
+  /**
+   * Records the current position and angle so draws can be interpolated
+   * between this and the next update.
+   */
+  protected void savePreviousState() {
+    prevX = x;
+    prevY = y;
+    prevAngle = angle;
+    hasPrevious = true;
+  }
+
+  /**
+   * Returns the x position as of the previous update, or the current
+   * position if the entity was only just placed.
+   */
+  public float getLastX() {
+    return hasPrevious ? prevX : x;
+  }
+
+  /**
+   * Returns the y position as of the previous update, or the current
+   * position if the entity was only just placed.
+   */
+  public float getLastY() {
+    return hasPrevious ? prevY : y;
+  }
+
+  /**
+   * Returns the angle as of the previous update, or the current angle if
+   * the entity was only just placed.
+   */
+  public float getLastAngle() {
+    return hasPrevious ? prevAngle : angle;
   }
 
   public void collide(Entity object, Vector2d avoidVector, boolean receiving) {
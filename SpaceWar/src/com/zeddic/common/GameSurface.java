@@ -17,12 +17,13 @@
 package com.zeddic.common;
 
 import android.content.Context;
-import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
+import com.zeddic.common.platform.Log;
+
 /**
  * A drawable game canvas. May be placed directly in the .xml layout file
  * or created and added programatically. A listener may register to the surface
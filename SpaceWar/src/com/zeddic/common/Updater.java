@@ -18,26 +18,32 @@ package com.zeddic.common;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PorterDuff.Mode;
 import android.os.Handler;
-import android.util.Log;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 
 import com.zeddic.common.GameSurface.GameSurfaceEventListener;
+import com.zeddic.common.platform.Log;
 
 /**
  * Manages a background thread to update and render a {@link Game}. The updater
  * acts as a middle man between the the canvas surface and the game, proxying
  * events from the canvas. 
  * 
+ * <p>The background thread paces itself with System.nanoTime(), sleeping
+ * until shortly before the next frame is due then yielding until it arrives.
+ * When a frame runs long the game is still updated with all of the passed time
+ * but drawing is skipped, up to {@link #MAX_FRAME_SKIPS} frames in a row, so
+ * the thread can catch back up to schedule. If it falls further behind than
+ * that, the schedule is reset rather than running a burst of frames back to
+ * back.
+ * 
  * <p>Also provides a mechanism for the main android UI thread to register to
  * receive events from the background thread.
  * 
@@ -74,14 +80,36 @@ public class Updater implements GameSurfaceEventListener  {
   
   // The target frames per second.
   private static final int UPDATES_PER_SECOND = 60;
-  private final Timer timer;
+  
+  /** The most frames in a row that may skip drawing to catch up. */
+  public static final int MAX_FRAME_SKIPS = 5;
+  
+  private static final long NANOS_PER_SECOND = 1000000000;
+  private static final long NANOS_PER_MILLI = 1000000;
+  private static final long FRAME_NANOS = NANOS_PER_SECOND / UPDATES_PER_SECOND;
+  
+  /** Sleep only until this close to the next frame, then yield. */
+  private static final long YIELD_NANOS = 2 * NANOS_PER_MILLI;
+  
+  /** Weight given to the newest sample when averaging frame timings. */
+  private static final float TIMING_SMOOTHING = 0.1f;
+  
   private final GameSurface gameSurface;
   private final SurfaceHolder surfaceHolder; 
-  private boolean running = false;
+  private volatile boolean running = false;
   private boolean showFps = false;
   
-  private UpdateTask updateTask;
+  private UpdateThread updateThread;
   private long timestamp;
+  
+  /** Nanoseconds passed that are not yet a whole millisecond of update. */
+  private long leftoverNanos;
+  
+  // Average timings in nanoseconds.
+  private float frameTime;
+  private float updateTime;
+  private float drawTime;
+  private long skippedDraws;
 
   private Paint paint;
   private int frameCount = 0;
@@ -101,8 +129,6 @@ public class Updater implements GameSurfaceEventListener  {
    * GameSurface.
    */
   public Updater(GameSurface surface) {
-    this.timer = new Timer();
-    this.timestamp = System.currentTimeMillis();
     
     this.eventHandlers = new HashMap<Integer, Handler>();
     
@@ -127,18 +153,33 @@ public class Updater implements GameSurfaceEventListener  {
     }
     
     running = true;
-    long updateInterval = 1000 / UPDATES_PER_SECOND;
-    updateTask = new UpdateTask();
-    timer.scheduleAtFixedRate(updateTask, 0, updateInterval);
+    updateThread = new UpdateThread();
+    updateThread.start();
   }
   
   /**
-   * Stops the updater.
+   * Stops the updater. Blocks until any frame in progress has finished
+   * so the surface is no longer in use once this returns.
    */
   public void stop() {
     running = false;
-    updateTask.cancel();
-    timer.purge();
+    
+    Thread thread = updateThread;
+    updateThread = null;
+    if (thread == null || thread == Thread.currentThread()) {
+      return;
+    }
+    
+    thread.interrupt();
+    boolean retry = true;
+    while (retry) {
+      try {
+        thread.join();
+        retry = false;
+      } catch (InterruptedException e) {
+        // Keep waiting.
+      }
+    }
   }
   
   /**
@@ -162,12 +203,14 @@ public class Updater implements GameSurfaceEventListener  {
       game.init(screenWidth, screenHeight);
     }
     
-    long now = System.currentTimeMillis();
-    long delta = now - timestamp;
+    long now = System.nanoTime();
+    leftoverNanos += now - timestamp;
+    timestamp = now;
+    
+    long delta = leftoverNanos / NANOS_PER_MILLI;
+    leftoverNanos -= delta * NANOS_PER_MILLI;
       
     game.update(delta);
-    
-    timestamp = now;
   }
   
   /**
@@ -214,9 +257,9 @@ public class Updater implements GameSurfaceEventListener  {
     
     if (showFps) {
       frameCount++;
-      long now = System.currentTimeMillis();
-      if ( now - fpsTimestamp > 1000) {
-         fps = frameCount / (int)((now - fpsTimestamp) / 1000);
+      long now = System.nanoTime();
+      if ( now - fpsTimestamp > NANOS_PER_SECOND) {
+         fps = (int) (frameCount * NANOS_PER_SECOND / (now - fpsTimestamp));
          fpsTimestamp = now;
          frameCount = 0;
       }
@@ -299,18 +342,112 @@ public class Updater implements GameSurfaceEventListener  {
   }
   
   /**
-   * An updater that tries to update and draw the game on a timed basis. 
+   * Returns the average time in milliseconds between the start of one frame
+   * and the start of the next.
    */
-  private class UpdateTask extends TimerTask {
+  public float getFrameTime() {
+    return frameTime / NANOS_PER_MILLI;
+  }
+  
+  /** Returns the average time in milliseconds spent updating the game. */
+  public float getUpdateTime() {
+    return updateTime / NANOS_PER_MILLI;
+  }
+  
+  /** Returns the average time in milliseconds spent drawing the game. */
+  public float getDrawTime() {
+    return drawTime / NANOS_PER_MILLI;
+  }
+  
+  /** Returns how many draws have been skipped to catch up since starting. */
+  public long getSkippedDraws() {
+    return skippedDraws;
+  }
+  
+  private static float smooth(float average, long sample) {
+    return average + (sample - average) * TIMING_SMOOTHING;
+  }
+  
+  /**
+   * A thread that updates and draws the game once per frame, skipping draws
+   * when behind schedule.
+   */
+  private class UpdateThread extends Thread {
+    
+    public UpdateThread() {
+      super("Updater");
+    }
+    
     @Override
     public void run() {
-      try {
-        update();
-        draw();
-      } catch (Exception e) {
-        Log.i("zeddic", "Update Exception", e);
+      timestamp = System.nanoTime();
+      leftoverNanos = 0;
+      fpsTimestamp = timestamp;
+      frameCount = 0;
+      
+      long nextFrame = timestamp;
+      long lastFrameStart = timestamp;
+      int skipped = 0;
+      
+      while (running) {
+        long frameStart = System.nanoTime();
+        frameTime = smooth(frameTime, frameStart - lastFrameStart);
+        lastFrameStart = frameStart;
+        nextFrame += FRAME_NANOS;
+        
+        try {
+          update();
+          long updated = System.nanoTime();
+          updateTime = smooth(updateTime, updated - frameStart);
+          
+          // Behind schedule: skip drawing this frame so the next update
+          // comes sooner, unless too many draws have been skipped already.
+          if (updated > nextFrame && skipped < MAX_FRAME_SKIPS) {
+            skipped++;
+            skippedDraws++;
+          } else {
+            skipped = 0;
+            draw();
+            drawTime = smooth(drawTime, System.nanoTime() - updated);
+          }
+        } catch (Exception e) {
+          Log.i("zeddic", "Update Exception", e);
+        }
+        
+        long now = System.nanoTime();
+        
+        // Too far behind to catch up. Start a fresh schedule from now rather
+        // than racing through every missed frame.
+        if (now - nextFrame > FRAME_NANOS * MAX_FRAME_SKIPS) {
+          nextFrame = now;
+        }
+        
+        if (!waitUntil(nextFrame)) {
+          return;
+        }
       }
-    }    
+    }
+    
+    /**
+     * Sleeps until shortly before the given time then yields until it is
+     * reached. Returns false if interrupted while waiting.
+     */
+    private boolean waitUntil(long time) {
+      long remaining = time - System.nanoTime();
+      if (remaining > YIELD_NANOS) {
+        try {
+          long sleep = remaining - YIELD_NANOS;
+          Thread.sleep(sleep / NANOS_PER_MILLI, (int) (sleep % NANOS_PER_MILLI));
+        } catch (InterruptedException e) {
+          return false;
+        }
+      }
+      
+      while (running && System.nanoTime() < time) {
+        Thread.yield();
+      }
+      return true;
+    }
   }
   
   /// IMPLEMENTS GameSurfaceEventListener
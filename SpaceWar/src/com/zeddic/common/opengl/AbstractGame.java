@@ -1,30 +1,89 @@
 package com.zeddic.common.opengl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import android.opengl.GLSurfaceView;
-import android.view.MotionEvent;
 
+import com.zeddic.common.platform.Log;
+import com.zeddic.common.platform.TouchEvent;
 import com.zeddic.common.util.Metrics;
+import com.zeddic.common.util.Profiler;
+import com.zeddic.common.util.Profiler.Scope;
 
+/**
+ * Base renderer for an OpenGL game. Drives the game's update and draw calls.
+ *
+ * <p>The game is never drawn directly. After updating, the game records what
+ * should be shown into a {@link RenderSnapshot} and draws are made only from
+ * the latest snapshot. By default updates and draws take turns on the GL
+ * thread. With a threaded simulation, updates instead run on their own thread
+ * and publish snapshots to the GL thread as they go, letting the two overlap
+ * on devices with more than one core.
+ *
+ * <p>By default the game is updated once per rendered frame with however much
+ * time passed since the last frame. With a fixed timestep enabled, updates are
+ * instead always made in steps of exactly {@link #getTickLength()} milliseconds.
+ * Any time left over is carried to the next frame and used to interpolate
+ * entities between their last two updates when drawing. If a frame falls
+ * far enough behind that catching up would take more than the max number of
+ * ticks per frame, the remaining backlog is dropped so a slow device never gets
+ * stuck trying to catch up. A threaded simulation always uses a fixed timestep.
+ *
+ * <p>The game may be sped up with a time scale. Faster speeds run more ticks
+ * per frame rather than longer ones, so the game plays out exactly as it
+ * would at normal speed. Ticks stop for the frame once they have used up the
+ * frame's work budget; a device that can't keep up simply runs slower than
+ * asked instead of falling further and further behind.
+ */
 public abstract class AbstractGame implements GLSurfaceView.Renderer {
 
   private static final int MILLIS_PER_SECOND = 1000;
+  private static final long NANOS_PER_MILLI = 1000000;
   private static final boolean ENABLE_FPS = true;
-  
+  private static final int DEFAULT_TICK_RATE = 50;
+  private static final int DEFAULT_MAX_TICKS_PER_FRAME = 5;
+  private static final long PROFILE_LOG_INTERVAL = 10000;
+  private static final long DEFAULT_WORK_BUDGET = 12;
+
+  private static final Scope FRAME = Profiler.get().scope("frame");
+  private static final Scope UPDATE = Profiler.get().scope("update");
+  private static final Scope SNAPSHOT = Profiler.get().scope("snapshot");
+  private static final Scope DRAW = Profiler.get().scope("draw");
+
   private boolean initialized = false;
-  private long lastUpdate;
+  private long lastFrame;
   private long lastFpsDisplay;
+  private long lastProfileLog;
   private Metrics fpsMetrics = new Metrics(10);
 
+  private boolean fixedTimestep = false;
+  private long tickLength = MILLIS_PER_SECOND / DEFAULT_TICK_RATE;
+  private int maxTicksPerFrame = DEFAULT_MAX_TICKS_PER_FRAME;
+  private long workBudget = DEFAULT_WORK_BUDGET * NANOS_PER_MILLI;
+  private volatile float timeScale = 1;
+
+  /** Nanoseconds of scaled time that have not yet been simulated. */
+  private long accumulator;
+
+  private final SnapshotBuffer snapshots = new SnapshotBuffer();
+  private boolean threaded = false;
+  private SimulationThread simulation;
+
+  /** Touch events waiting to be handled on the next update. */
+  private final List<TouchEvent> pendingEvents = new ArrayList<TouchEvent>();
+  private final List<TouchEvent> handledEvents = new ArrayList<TouchEvent>();
+
   private static final int FPS_WIDTH = 64;
   private static final int FPS_HEIGHT = 64;
   private TextSprite fpsSprite = new TextSprite(FPS_WIDTH, FPS_HEIGHT);
-  
+
   @Override
   public void onSurfaceCreated(GL10 gl, EGLConfig config) {}
-  
+
   @Override
   public void onSurfaceChanged(GL10 gl, int width, int height) {
     Screen.width = width;
@@ -32,28 +91,151 @@ public abstract class AbstractGame implements GLSurfaceView.Renderer {
     if (!initialized) {
       onInitialize();
       initialized = true;
+      publishSnapshot(System.nanoTime());
+
+      if (threaded) {
+        simulation = new SimulationThread();
+        simulation.start();
+      }
     }
   }
 
   @Override
   public void onDrawFrame(GL10 gl) {
-    long now = System.currentTimeMillis();
-    long delta = now - lastUpdate;
-    lastUpdate = now; 
-    
-    update(delta);
-    draw(gl);
-    
+    long now = System.nanoTime();
+    long elapsed = lastFrame == 0 ? 0 : now - lastFrame;
+    lastFrame = now;
+
+    FRAME.begin();
+    TextureLibrary.get().loadPending();
+
+    if (!threaded) {
+      handleTouchEvents();
+      int ticks = fixedTimestep ? stepFixed(elapsed) : stepVariable(elapsed);
+      if (ticks > 0) {
+        publishSnapshot(now - (long) (accumulator / timeScale));
+      }
+    }
+
+    RenderSnapshot snapshot = snapshots.acquire();
+    snapshot.interpolation = getInterpolation(snapshot, now);
+    DRAW.begin();
+    draw(gl, snapshot);
+    DRAW.end();
+
+    long delta = elapsed / NANOS_PER_MILLI;
     if (lastFpsDisplay < 500) {
       lastFpsDisplay += delta;
-    } else {
+    } else if (delta > 0) {
       lastFpsDisplay = 0;
       fpsMetrics.addSample(MILLIS_PER_SECOND / delta);
     }
-    
+
     if (ENABLE_FPS) {
       displayFps(gl);
     }
+    FRAME.end();
+
+    lastProfileLog += delta;
+    if (lastProfileLog > PROFILE_LOG_INTERVAL && Profiler.get().enabled) {
+      lastProfileLog = 0;
+      Log.d(AbstractGame.class.getName(), "Frame profile:\n" + Profiler.get().report());
+    }
+  }
+
+  /**
+   * Updates the game once with all of the time passed since the last frame.
+   * Returns the number of updates made.
+   */
+  private int stepVariable(long elapsed) {
+    accumulator += (long) (elapsed * timeScale);
+    long delta = accumulator / NANOS_PER_MILLI;
+    accumulator -= delta * NANOS_PER_MILLI;
+
+    UPDATE.begin();
+    update(delta);
+    UPDATE.end();
+    return 1;
+  }
+
+  /**
+   * Updates the game in as many fixed size ticks as fit in the passed time,
+   * up to the max number of ticks allowed in a single frame or until the
+   * work budget runs out. Returns the number of ticks made.
+   */
+  private int stepFixed(long elapsed) {
+    long tickNanos = tickLength * NANOS_PER_MILLI;
+    float scale = timeScale;
+    accumulator += (long) (elapsed * scale);
+
+    int maxTicks = (int) Math.ceil(maxTicksPerFrame * scale);
+    long start = System.nanoTime();
+    int ticks = 0;
+    while (accumulator >= tickNanos && ticks < maxTicks) {
+      UPDATE.begin();
+      update(tickLength);
+      UPDATE.end();
+      accumulator -= tickNanos;
+      ticks++;
+
+      if (System.nanoTime() - start > workBudget) {
+        break;
+      }
+    }
+
+    // Still behind after the max number of ticks or out of budget. Let the
+    // game slow down rather than spend every following frame trying to catch
+    // up.
+    if (accumulator >= tickNanos) {
+      accumulator %= tickNanos;
+    }
+
+    return ticks;
+  }
+
+  /**
+   * Records the game's current state into the back buffer and hands it to
+   * the renderer. The tick time is the real time that the game's current
+   * state corresponds to.
+   */
+  private void publishSnapshot(long tickTime) {
+    RenderSnapshot snapshot = snapshots.getBackBuffer();
+    SNAPSHOT.begin();
+    snapshot.clear();
+    snapshot(snapshot);
+    SNAPSHOT.end();
+    snapshot.tickTime = tickTime;
+    snapshots.publish();
+  }
+
+  /**
+   * Returns how far past the snapshot's tick the frame being drawn is, as a
+   * fraction of a tick.
+   */
+  private float getInterpolation(RenderSnapshot snapshot, long now) {
+    if (!fixedTimestep && !threaded) {
+      return 1;
+    }
+
+    float interpolation = (now - snapshot.tickTime) * timeScale / (tickLength * NANOS_PER_MILLI);
+    return Math.max(0, Math.min(1, interpolation));
+  }
+
+  /**
+   * Handles all touch events received since the last update. Called on
+   * whichever thread is updating the game.
+   */
+  private void handleTouchEvents() {
+    synchronized (pendingEvents) {
+      handledEvents.addAll(pendingEvents);
+      pendingEvents.clear();
+    }
+
+    for (int i = 0; i < handledEvents.size(); i++) {
+      TouchEvent event = handledEvents.get(i);
+      onTouchEvent(event);
+    }
+    handledEvents.clear();
   }
 
   private void displayFps(GL10 gl) {
@@ -63,9 +245,203 @@ public abstract class AbstractGame implements GLSurfaceView.Renderer {
     fpsSprite.draw(gl);
   }
 
-  public void onTouchEvent(final MotionEvent event) {}
+  /**
+   * Sets whether the game should be updated in fixed size ticks rather than
+   * once per frame. Defaults to false.
+   */
+  public void setFixedTimestep(boolean fixedTimestep) {
+    this.fixedTimestep = fixedTimestep;
+    this.accumulator = 0;
+  }
+
+  /**
+   * Sets whether the game should be updated on its own thread rather than the
+   * GL thread. Implies a fixed timestep. Must be set before the surface is
+   * first created. Defaults to false.
+   */
+  public void setThreadedSimulation(boolean threaded) {
+    this.threaded = threaded;
+    if (threaded) {
+      setFixedTimestep(true);
+    }
+  }
+
+  /**
+   * Sets how many ticks per second to run when using a fixed timestep. Ticks
+   * are a whole number of milliseconds long, so the actual rate is
+   * rounded to the closest tick length that fits.
+   */
+  public void setTickRate(int ticksPerSecond) {
+    this.tickLength = Math.max(1, MILLIS_PER_SECOND / ticksPerSecond);
+  }
+
+  /**
+   * Sets the length in milliseconds of a single fixed timestep tick.
+   */
+  public void setTickLength(long tickLength) {
+    this.tickLength = Math.max(1, tickLength);
+  }
+
+  /**
+   * Sets the maximum number of ticks that may be run in a single frame while
+   * catching up after a slow frame.
+   */
+  public void setMaxTicksPerFrame(int maxTicksPerFrame) {
+    this.maxTicksPerFrame = Math.max(1, maxTicksPerFrame);
+  }
+
+  /**
+   * Sets how many times faster than real time the game should run. With a
+   * fixed timestep, speeds above 1 run extra ticks each frame, up to the max
+   * ticks per frame multiplied by the scale.
+   */
+  public void setTimeScale(float timeScale) {
+    this.timeScale = Math.max(0.1f, timeScale);
+  }
+
+  public float getTimeScale() {
+    return timeScale;
+  }
+
+  /**
+   * Sets how many milliseconds of real time may be spent updating in a
+   * single frame before the remaining ticks are dropped. Defaults to 12,
+   * which leaves room to draw at 60 frames per second.
+   */
+  public void setWorkBudget(long millis) {
+    this.workBudget = millis * NANOS_PER_MILLI;
+  }
+
+  /** Returns the length in milliseconds of a single fixed timestep tick. */
+  public long getTickLength() {
+    return tickLength;
+  }
+
+  /**
+   * Queues a touch event to be handled before the next update. May be called
+   * from any thread.
+   */
+  public void queueTouchEvent(TouchEvent event) {
+    synchronized (pendingEvents) {
+      pendingEvents.add(event);
+    }
+  }
+
+  /**
+   * Stops updating the game until {@link #resume()} is called. Time spent
+   * paused is not simulated.
+   */
+  public void pause() {
+    if (simulation != null) {
+      simulation.setPaused(true);
+    }
+  }
+
+  /** Resumes updating the game after a {@link #pause()}. */
+  public void resume() {
+    lastFrame = 0;
+    if (simulation != null) {
+      simulation.setPaused(false);
+    }
+  }
+
+  /** Permanently stops the simulation thread, if any. */
+  public void shutdown() {
+    if (simulation != null) {
+      simulation.shutdown();
+      simulation = null;
+    }
+  }
+
+  public void onTouchEvent(final TouchEvent event) {}
 
   public abstract void onInitialize();
-  public abstract void draw(GL10 gl);
+
+  /**
+   * Updates the game state by the given number of milliseconds. Called on the
+   * simulation thread when the simulation is threaded.
+   */
   public abstract void update(long time);
+
+  /**
+   * Records everything that should be drawn for the game's current state.
+   * Called on the same thread as update().
+   */
+  public abstract void snapshot(RenderSnapshot snapshot);
+
+  /**
+   * Draws a frame. Anything that changes during updates must be drawn from
+   * the snapshot rather than read from the game directly.
+   */
+  public abstract void draw(GL10 gl, RenderSnapshot snapshot);
+
+  /**
+   * Runs fixed timestep updates as they come due, publishing a new snapshot
+   * after each batch of ticks.
+   */
+  private class SimulationThread extends Thread {
+
+    private boolean running = true;
+    private boolean paused = false;
+    private long last;
+
+    public SimulationThread() {
+      super("Simulation");
+    }
+
+    public synchronized void setPaused(boolean paused) {
+      this.paused = paused;
+      notifyAll();
+    }
+
+    public synchronized void shutdown() {
+      running = false;
+      notifyAll();
+    }
+
+    /**
+     * Blocks while paused. Returns false once the thread should exit.
+     */
+    private synchronized boolean waitWhilePaused() throws InterruptedException {
+      boolean waited = false;
+      while (paused && running) {
+        wait();
+        waited = true;
+      }
+
+      // Don't try to simulate the time spent paused.
+      if (waited) {
+        last = System.nanoTime();
+        accumulator = 0;
+      }
+      return running;
+    }
+
+    @Override
+    public void run() {
+      long tickNanos = tickLength * NANOS_PER_MILLI;
+      last = System.nanoTime();
+
+      try {
+        while (waitWhilePaused()) {
+          long now = System.nanoTime();
+          long elapsed = now - last;
+          last = now;
+
+          handleTouchEvents();
+          if (stepFixed(elapsed) > 0) {
+            publishSnapshot(now - (long) (accumulator / timeScale));
+          }
+
+          // Sleep until the next tick is due.
+          long wait = (long) ((tickNanos - accumulator) / timeScale);
+          if (wait > 0) {
+            Thread.sleep(wait / NANOS_PER_MILLI, (int) (wait % NANOS_PER_MILLI));
+          }
+        }
+      } catch (InterruptedException e) {
+        Log.d(AbstractGame.class.getName(), "Simulation thread interrupted");
+      }
+    }
+  }
 }
@@ -0,0 +1,24 @@
+package com.zeddic.common.opengl;
+
+import android.graphics.Bitmap;
+
+/**
+ * A texture whose image comes from a bitmap in memory rather than an image
+ * resource. The bitmap may be changed after the texture is created, then
+ * copied onto the texture again with {@link #reload()}.
+ * 
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class BitmapTexture extends Texture {
+
+  final Bitmap bitmap;
+
+  public BitmapTexture(Bitmap bitmap) {
+    this.bitmap = bitmap;
+    register();
+  }
+
+  public void reload() {
+    TextureLibrary.get().reloadTexture(this);
+  }
+}
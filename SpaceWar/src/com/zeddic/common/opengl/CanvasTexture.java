@@ -14,14 +14,14 @@ public class CanvasTexture {
 
   private final Bitmap bitmap;
   private final Canvas canvas;
-  private final Texture texture; 
+  private final BitmapTexture texture; 
   public final int width;
   public final int height;
   
   public CanvasTexture(int width, int height) {
     bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_4444);
     canvas = new Canvas(bitmap);
-    texture = new Texture(bitmap);
+    texture = new BitmapTexture(bitmap);
     this.width = width;
     this.height = height;
   }
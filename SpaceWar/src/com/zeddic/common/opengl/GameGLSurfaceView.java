@@ -4,6 +4,8 @@ import android.content.Context;
 import android.opengl.GLSurfaceView;
 import android.view.MotionEvent;
 
+import com.zeddic.common.platform.AndroidPlatform;
+
 public class GameGLSurfaceView extends GLSurfaceView {
 
   private AbstractGame game;
@@ -15,10 +17,8 @@ public class GameGLSurfaceView extends GLSurfaceView {
   }
 
   public boolean onTouchEvent(final MotionEvent event) {
-    queueEvent(new Runnable(){
-        public void run() {
-          game.onTouchEvent(event);
-        }});
-        return true;
-    }      
+    // The event is recycled once this returns, so hand the game a copy.
+    game.queueTouchEvent(AndroidPlatform.toTouchEvent(event));
+    return true;
+  }
 }
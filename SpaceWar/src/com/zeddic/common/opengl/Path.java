@@ -8,7 +8,7 @@ import javax.microedition.khronos.opengles.GL10;
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.util.Vector2d;
 
-public class Path extends AbstractGameObject {
+public class Path extends AbstractGameObject implements Renderable {
 
   private final FloatBuffer buffer;
   private int size;
@@ -0,0 +1,349 @@
+package com.zeddic.common.opengl;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import com.zeddic.common.Entity;
+
+/**
+ * A flat record of everything that should be drawn for a single simulation
+ * tick. The simulation fills a snapshot after updating and the renderer draws
+ * only from the snapshot, so the two never read each other's state and may run
+ * on different threads.
+ *
+ * <p>Each record holds the position both at the previous and the latest tick
+ * so the renderer can interpolate between them. Records are kept in flat
+ * primitive arrays that are reused from one tick to the next; nothing is
+ * allocated once the arrays have grown large enough.
+ *
+ * <p>Records added before {@link #beginOverlay()} are drawn in world space
+ * using the snapshot's view transform. Records added after it are drawn
+ * directly in screen space.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class RenderSnapshot {
+
+  private static final int DEFAULT_CAPACITY = 256;
+
+  private static final int SPRITE = 0;
+  private static final int LINE = 1;
+  private static final int POINT = 2;
+
+  // Record layout within the data array. Sprites and points use the first
+  // four slots for their previous and current position, lines use the first
+  // eight for both of their end points.
+  private static final int STRIDE = 12;
+  private static final int PREV_X = 0;
+  private static final int PREV_Y = 1;
+  private static final int X = 2;
+  private static final int Y = 3;
+  private static final int PREV_ANGLE = 4;
+  private static final int ANGLE = 5;
+  private static final int SCALE = 6;
+  private static final int RED = 8;
+  private static final int GREEN = 9;
+  private static final int BLUE = 10;
+  private static final int ALPHA = 11;
+
+  private int[] kinds;
+  private Sprite[] sprites;
+  private float[] data;
+  private int size;
+  private int overlayStart;
+
+  /** The camera translation and zoom to apply to world records. */
+  public float viewX;
+  public float viewY;
+  public float viewScale = 1;
+
+  /**
+   * The System.nanoTime() that the latest tick in this snapshot represents.
+   * Used by the renderer to work out how far to interpolate.
+   */
+  public long tickTime;
+
+  /**
+   * How far between the previous and latest tick to draw, from 0 to 1. Set by
+   * the renderer right before drawing.
+   */
+  public float interpolation = 1;
+
+  /** Reused while drawing lines and points. Only touched by the renderer. */
+  private final Color drawColor = new Color(0, 0, 0, 0);
+
+  public RenderSnapshot() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public RenderSnapshot(int capacity) {
+    kinds = new int[capacity];
+    sprites = new Sprite[capacity];
+    data = new float[capacity * STRIDE];
+  }
+
+  /**
+   * Removes all records so the snapshot can be filled for a new tick.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      sprites[i] = null;
+    }
+    size = 0;
+    overlayStart = -1;
+    viewX = 0;
+    viewY = 0;
+    viewScale = 1;
+  }
+
+  /** Returns the number of records in the snapshot. */
+  public int size() {
+    return size;
+  }
+
+  /** Sets the camera transform applied to all world records. */
+  public void setView(float x, float y, float scale) {
+    viewX = x;
+    viewY = y;
+    viewScale = scale;
+  }
+
+  /**
+   * Marks that all following records should be drawn in screen space rather
+   * than world space.
+   */
+  public void beginOverlay() {
+    overlayStart = size;
+  }
+
+  /**
+   * Adds a sprite that follows an entity, including its angle.
+   */
+  public void addSprite(Sprite sprite, Entity entity, Color color) {
+    addSprite(sprite, entity, entity.getLastAngle(), entity.angle, 1, color, color.a);
+  }
+
+  /**
+   * Adds a sprite that follows an entity's position but is drawn with the
+   * given angle, scale, and alpha.
+   */
+  public void addSprite(
+      Sprite sprite,
+      Entity entity,
+      float prevAngle,
+      float angle,
+      float scale,
+      Color color,
+      float alpha) {
+    int offset = add(SPRITE, color, alpha);
+    sprites[size - 1] = sprite;
+    data[offset + PREV_X] = entity.getLastX();
+    data[offset + PREV_Y] = entity.getLastY();
+    data[offset + X] = entity.x;
+    data[offset + Y] = entity.y;
+    data[offset + PREV_ANGLE] = prevAngle;
+    data[offset + ANGLE] = angle;
+    data[offset + SCALE] = scale;
+  }
+
+  /**
+   * Adds a sprite that is not moving.
+   */
+  public void addSprite(
+      Sprite sprite,
+      float x,
+      float y,
+      float angle,
+      float scale,
+      Color color,
+      float alpha) {
+    int offset = add(SPRITE, color, alpha);
+    sprites[size - 1] = sprite;
+    data[offset + PREV_X] = x;
+    data[offset + PREV_Y] = y;
+    data[offset + X] = x;
+    data[offset + Y] = y;
+    data[offset + PREV_ANGLE] = angle;
+    data[offset + ANGLE] = angle;
+    data[offset + SCALE] = scale;
+  }
+
+  /**
+   * Adds a line whose end points are given relative to an entity's position,
+   * moving along with it.
+   */
+  public void addLine(Entity anchor, float x1, float y1, float x2, float y2, Color color) {
+    float prevX = anchor.getLastX();
+    float prevY = anchor.getLastY();
+    addLine(
+        prevX + x1, prevY + y1, anchor.x + x1, anchor.y + y1,
+        prevX + x2, prevY + y2, anchor.x + x2, anchor.y + y2,
+        color);
+  }
+
+  /**
+   * Adds a line that is not moving.
+   */
+  public void addLine(float x1, float y1, float x2, float y2, Color color) {
+    addLine(x1, y1, x1, y1, x2, y2, x2, y2, color);
+  }
+
+  /**
+   * Adds a line, giving the previous and current position of both end points.
+   */
+  public void addLine(
+      float prevX1, float prevY1, float x1, float y1,
+      float prevX2, float prevY2, float x2, float y2,
+      Color color) {
+    int offset = add(LINE, color, color.a);
+    data[offset + 0] = prevX1;
+    data[offset + 1] = prevY1;
+    data[offset + 2] = x1;
+    data[offset + 3] = y1;
+    data[offset + 4] = prevX2;
+    data[offset + 5] = prevY2;
+    data[offset + 6] = x2;
+    data[offset + 7] = y2;
+  }
+
+  /**
+   * Adds a single pixel at an entity's position.
+   */
+  public void addPoint(Entity entity, Color color, float alpha) {
+    int offset = add(POINT, color, alpha);
+    data[offset + PREV_X] = entity.getLastX();
+    data[offset + PREV_Y] = entity.getLastY();
+    data[offset + X] = entity.x;
+    data[offset + Y] = entity.y;
+  }
+
+  /**
+   * Reserves a new record and fills in its color. Returns the record's offset
+   * into the data array.
+   */
+  private int add(int kind, Color color, float alpha) {
+    if (size == kinds.length) {
+      grow();
+    }
+
+    int offset = size * STRIDE;
+    kinds[size] = kind;
+    data[offset + RED] = color.r;
+    data[offset + GREEN] = color.g;
+    data[offset + BLUE] = color.b;
+    data[offset + ALPHA] = alpha;
+    size++;
+    return offset;
+  }
+
+  private void grow() {
+    int capacity = kinds.length * 2;
+
+    int[] newKinds = new int[capacity];
+    System.arraycopy(kinds, 0, newKinds, 0, size);
+    kinds = newKinds;
+
+    Sprite[] newSprites = new Sprite[capacity];
+    System.arraycopy(sprites, 0, newSprites, 0, size);
+    sprites = newSprites;
+
+    float[] newData = new float[capacity * STRIDE];
+    System.arraycopy(data, 0, newData, 0, size * STRIDE);
+    data = newData;
+  }
+
+  /**
+   * Applies the view transform. {@link #endView} should be called once all
+   * world objects have been drawn.
+   */
+  public void beginView(GL10 gl) {
+    gl.glPushMatrix();
+    gl.glScalef(viewScale, viewScale, 0);
+    gl.glTranslatef(viewX, viewY, 0);
+  }
+
+  /** Pops the view transform applied by {@link #beginView}. */
+  public void endView(GL10 gl) {
+    gl.glPopMatrix();
+  }
+
+  /** Draws all world space records. */
+  public void drawWorld(GL10 gl) {
+    draw(gl, 0, overlayStart == -1 ? size : overlayStart);
+  }
+
+  /** Draws all screen space records. */
+  public void drawOverlay(GL10 gl) {
+    if (overlayStart != -1) {
+      draw(gl, overlayStart, size);
+    }
+  }
+
+  private void draw(GL10 gl, int start, int end) {
+    float t = interpolation;
+    for (int i = start; i < end; i++) {
+      int offset = i * STRIDE;
+
+      switch (kinds[i]) {
+        case SPRITE:
+          Sprite sprite = sprites[i];
+          sprite.x = lerp(data[offset + PREV_X], data[offset + X], t);
+          sprite.y = lerp(data[offset + PREV_Y], data[offset + Y], t);
+          sprite.rz = lerpAngle(data[offset + PREV_ANGLE], data[offset + ANGLE], t);
+          sprite.scale = data[offset + SCALE];
+          sprite.setColor(
+              data[offset + RED],
+              data[offset + GREEN],
+              data[offset + BLUE],
+              data[offset + ALPHA]);
+          sprite.draw(gl);
+          break;
+
+        case LINE:
+          loadColor(offset);
+          SimpleGeometry.drawLine(
+              gl,
+              lerp(data[offset + 0], data[offset + 2], t),
+              lerp(data[offset + 1], data[offset + 3], t),
+              lerp(data[offset + 4], data[offset + 6], t),
+              lerp(data[offset + 5], data[offset + 7], t),
+              drawColor);
+          break;
+
+        case POINT:
+          loadColor(offset);
+          SimpleGeometry.drawPoint(
+              gl,
+              lerp(data[offset + PREV_X], data[offset + X], t),
+              lerp(data[offset + PREV_Y], data[offset + Y], t),
+              drawColor);
+          break;
+      }
+    }
+  }
+
+  private void loadColor(int offset) {
+    drawColor.set(
+        data[offset + RED],
+        data[offset + GREEN],
+        data[offset + BLUE],
+        data[offset + ALPHA]);
+  }
+
+  private static float lerp(float from, float to, float t) {
+    return from + (to - from) * t;
+  }
+
+  /**
+   * Interpolates between two angles in degrees, always turning the short way
+   * around so wrapping from 359 to 0 doesn't spin the sprite.
+   */
+  private static float lerpAngle(float from, float to, float t) {
+    float delta = (to - from) % 360;
+    if (delta > 180) {
+      delta -= 360;
+    } else if (delta < -180) {
+      delta += 360;
+    }
+    return from + delta * t;
+  }
+}
@@ -0,0 +1,15 @@
+package com.zeddic.common.opengl;
+
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * Something that draws itself straight to the screen, such as the level or
+ * the hud. Game objects that move during the simulation are not drawn this
+ * way; they are recorded into a {@link RenderSnapshot} instead, which leaves
+ * the simulation free of any rendering code.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public interface Renderable {
+  void draw(GL10 gl);
+}
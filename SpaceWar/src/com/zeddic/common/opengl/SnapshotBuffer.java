@@ -0,0 +1,55 @@
+package com.zeddic.common.opengl;
+
+/**
+ * A triple buffer of {@link RenderSnapshot}s shared between the thread that
+ * simulates the game and the thread that draws it.
+ *
+ * <p>The simulation always writes into the back buffer then publishes it.
+ * The renderer always draws the front buffer, picking up the most recently
+ * published snapshot whenever one is available. Neither side ever waits on
+ * the other for longer than it takes to swap two references; if the
+ * simulation publishes several snapshots between frames, only the newest
+ * is drawn.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class SnapshotBuffer {
+
+  private RenderSnapshot front = new RenderSnapshot();
+  private RenderSnapshot ready = new RenderSnapshot();
+  private RenderSnapshot back = new RenderSnapshot();
+  private boolean fresh = false;
+
+  /**
+   * Returns the snapshot the simulation should fill next. Should only be
+   * called from the simulating thread.
+   */
+  public RenderSnapshot getBackBuffer() {
+    return back;
+  }
+
+  /**
+   * Makes the back buffer available to the renderer.
+   */
+  public synchronized void publish() {
+    RenderSnapshot temp = ready;
+    ready = back;
+    back = temp;
+    fresh = true;
+  }
+
+  /**
+   * Returns the newest published snapshot. The same snapshot is returned
+   * until a newer one is published. Should only be called from the drawing
+   * thread.
+   */
+  public synchronized RenderSnapshot acquire() {
+    if (fresh) {
+      RenderSnapshot temp = front;
+      front = ready;
+      ready = temp;
+      fresh = false;
+    }
+    return front;
+  }
+}
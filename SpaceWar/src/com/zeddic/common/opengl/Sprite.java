@@ -1,7 +1,5 @@
 package com.zeddic.common.opengl;
 
-import android.graphics.Bitmap;
-
 /**
  * A 2D plane that displays a single texture on one face.
  * 
@@ -13,9 +11,4 @@ public class Sprite extends SimplePlane {
     super(width, height);
     setTexture(new Texture(resource));
   }
-  
-  public Sprite(int width, int height, Bitmap bitmap) {
-    super(width, height);
-    setTexture(new Texture(bitmap));
-  }
 }
@@ -1,12 +1,11 @@
 package com.zeddic.common.opengl;
 
-import android.graphics.Bitmap;
+import com.zeddic.common.platform.Platform;
 
 public class Texture {
 
   int id = -1;
   int resourceId = -1;
-  Bitmap bitmap = null;
 
   float width;
   float height;
@@ -16,28 +15,21 @@ public class Texture {
     register();
   }
   
-  public Texture(Bitmap bitmap) {
-    this.bitmap = bitmap;
-    register();
-  }
+  /**
+   * Creates a texture without an image resource. Subclasses must call
+   * {@link #register()} once they are ready to be loaded.
+   */
+  protected Texture() { }
 
   public boolean hasResource() {
     return resourceId != -1;
   }
   
-  public boolean hasBitmap() {
-    return bitmap != null;
-  }
-  
   public boolean isLoaded() {
     return id != -1;
   }
   
-  public void reload() {
-    TextureLibrary.get().reloadTexture(this);
-  }
-  
-  private void register() {
-    TextureLibrary.get().add(this);
+  protected void register() {
+    Platform.get().addTexture(this);
   }
 }
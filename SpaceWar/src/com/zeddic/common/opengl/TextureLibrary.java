@@ -16,6 +16,7 @@ public class TextureLibrary {
 
   private static TextureLibrary singleton = new TextureLibrary();
   private List<Texture> textures = new ArrayList<Texture>();
+  private List<Texture> pending = new ArrayList<Texture>();
   private Map<Integer, Texture> cache = new HashMap<Integer, Texture>();
   private GL10 gl;
   private Context context;
@@ -31,14 +32,31 @@ public class TextureLibrary {
     initialized = true;
   }
   
-  public void add(Texture texture) {
+  /**
+   * Registers a texture with the library. Textures may be created from any
+   * thread, so once the library is initialized new textures are only queued
+   * here and actually loaded on the GL thread by {@link #loadPending()}.
+   */
+  public synchronized void add(Texture texture) {
     textures.add(texture);
     if (initialized) {
-      loadTexture(texture);
+      pending.add(texture);
+    }
+  }
+  
+  /**
+   * Loads any textures added since the last call. Must be called from the
+   * GL thread.
+   */
+  public synchronized void loadPending() {
+    for (int i = 0; i < pending.size(); i++) {
+      loadTexture(pending.get(i));
     }
+    pending.clear();
   }
   
-  public void reload() {
+  public synchronized void reload() {
+    pending.clear();
     clear();
     loadTextures();
   }
@@ -80,8 +98,8 @@ public class TextureLibrary {
       return;
     }
     
-    if (texture.hasBitmap()) {
-      createTextureFromBitmap(texture.bitmap, texture);
+    if (texture instanceof BitmapTexture) {
+      createTextureFromBitmap(((BitmapTexture) texture).bitmap, texture);
       return;
     }
 
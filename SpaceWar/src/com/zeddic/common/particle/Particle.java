@@ -16,11 +16,6 @@
 
 package com.zeddic.common.particle;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.graphics.Color;
-import android.graphics.Paint;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.util.Vector2d;
 
@@ -74,9 +69,6 @@ public class Particle extends Entity {
   /** If true, will trigger a collide with the gravity well when it reaches it. */
   public boolean gravityWellCollide;
   
-  /** Paint used to draw the particle. */
-  protected Paint paint;
-  
   /** Vector used for drawing the particle as a line based on speed. */
   //protected Vector2d scaledVelocity = new Vector2d(0, 0);
   /** A gravity force vector applied by the gravity well. */
@@ -102,10 +94,6 @@ public class Particle extends Entity {
     this.velocity = new Vector2d(0, 0);
     this.scale = 3;
     this.life = 0;
-    
-    paint = new Paint();
-    paint.setColor(Color.RED);
-    paint.setStrokeWidth(4);
   }
   
   /**
@@ -151,14 +139,6 @@ public class Particle extends Entity {
     scale += scaleRate * timeFraction;
   }
 
-  /**
-   * Draws the particle to the screen.
-   */
-  @Override
-  public void draw(GL10 gl) {
-    
-  }
-  
   @Override
   public void reset() {
   
@@ -18,14 +18,13 @@ package com.zeddic.common.particle;
 
 import java.util.Random;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.util.Log;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.particle.SpriteParticle.SpriteParticleData;
+import com.zeddic.common.platform.Log;
+import com.zeddic.common.util.GameClock;
 import com.zeddic.common.util.ObjectPoolManager;
 import com.zeddic.common.util.RandomUtil;
 import com.zeddic.common.util.ObjectPool.ObjectBuilder;
@@ -214,7 +213,7 @@ public class ParticleEmitter extends Entity {
     enable();
     life = 0;
     spawnCount = 0;
-    lastFire = System.currentTimeMillis();
+    lastFire = GameClock.now();
   }
   
   /**
@@ -280,11 +279,12 @@ public class ParticleEmitter extends Entity {
   }
   
   /**
-   * Draws all particles that have been spawned. The emitter itself
+   * Records all particles that have been spawned. The emitter itself
    * is not visible.
    */
-  public void draw(GL10 gl) {
-    poolManager.draw(gl);
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
+    poolManager.snapshot(snapshot);
   }
   
   /**
@@ -294,7 +294,7 @@ public class ParticleEmitter extends Entity {
    */
   private void emmitNeededParticles(long time) {
 
-    long now = System.currentTimeMillis();
+    long now = GameClock.now();
     long passedTime = now - lastFire;
     if (passedTime > fireCooldown) {
       long timesToFire =
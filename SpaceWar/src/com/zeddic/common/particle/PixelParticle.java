@@ -1,9 +1,7 @@
 package com.zeddic.common.particle;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.opengl.Color;
-import com.zeddic.common.opengl.SimpleGeometry;
+import com.zeddic.common.opengl.RenderSnapshot;
 
 public class PixelParticle extends Particle {
 
@@ -14,8 +12,7 @@ public class PixelParticle extends Particle {
   }
 
   @Override
-  public void draw(GL10 gl) {
-    color.a = alpha;
-    SimpleGeometry.drawPoint(gl, x, y, color);
+  public void snapshot(RenderSnapshot snapshot) {
+    snapshot.addPoint(this, color, alpha);
   }
 }
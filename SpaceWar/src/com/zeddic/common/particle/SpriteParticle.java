@@ -1,8 +1,7 @@
 package com.zeddic.common.particle;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 
 public class SpriteParticle extends Particle {
@@ -23,17 +22,12 @@ public class SpriteParticle extends Particle {
   }
 
   @Override
-  public void draw(GL10 gl) {
+  public void snapshot(RenderSnapshot snapshot) {
     if (sprite == null) {
       return;
     }
 
-    sprite.scale = scale;
-    sprite.setColor(color);
-    sprite.x = x;
-    sprite.y = y;
-    sprite.setAlpha(alpha);
-    sprite.draw(gl);
+    snapshot.addSprite(sprite, this, 0, 0, scale, color, alpha);
   }
 
   public static class SpriteParticleData implements ParticleData {
@@ -0,0 +1,61 @@
+package com.zeddic.common.platform;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.content.Context;
+import android.view.MotionEvent;
+
+import com.zeddic.common.opengl.Texture;
+import com.zeddic.common.opengl.TextureLibrary;
+
+/**
+ * The platform used when running as an Android app. Logs go to logcat,
+ * assets are read through the app's asset manager, and textures are loaded
+ * onto the GL surface through the {@link TextureLibrary}.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class AndroidPlatform extends Platform {
+
+  private final Context context;
+
+  public AndroidPlatform(Context context) {
+    this.context = context;
+  }
+
+  @Override
+  public void log(int level, String tag, String message, Throwable throwable) {
+    switch (level) {
+      case DEBUG: android.util.Log.d(tag, message, throwable); break;
+      case INFO: android.util.Log.i(tag, message, throwable); break;
+      case WARN: android.util.Log.w(tag, message, throwable); break;
+      default: android.util.Log.e(tag, message, throwable); break;
+    }
+  }
+
+  @Override
+  public InputStream openAsset(String path) throws IOException {
+    return context.getAssets().open(path);
+  }
+
+  @Override
+  public void addTexture(Texture texture) {
+    TextureLibrary.get().add(texture);
+  }
+
+  /**
+   * Copies an Android motion event into a {@link TouchEvent}. The motion event
+   * is not kept, so it may be recycled as soon as this returns.
+   */
+  public static TouchEvent toTouchEvent(MotionEvent event) {
+    int pointers = event.getPointerCount();
+    float[] x = new float[pointers];
+    float[] y = new float[pointers];
+    for (int i = 0; i < pointers; i++) {
+      x[i] = event.getX(i);
+      y[i] = event.getY(i);
+    }
+    return new TouchEvent(event.getAction(), x, y);
+  }
+}
@@ -0,0 +1,23 @@
+package com.zeddic.common.platform;
+
+/**
+ * Float versions of common math functions. Replaces android.util.FloatMath,
+ * which is only available on Android and is no faster than java.lang.Math
+ * on any JIT enabled device.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class FloatMath {
+
+  public static float sqrt(float value) {
+    return (float) Math.sqrt(value);
+  }
+
+  public static float sin(float angle) {
+    return (float) Math.sin(angle);
+  }
+
+  public static float cos(float angle) {
+    return (float) Math.cos(angle);
+  }
+}
@@ -0,0 +1,51 @@
+package com.zeddic.common.platform;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+
+import com.zeddic.common.opengl.Texture;
+
+/**
+ * A platform for running the engine on a desktop JVM. Logs go to standard
+ * out and standard error and assets are read from a directory on disk.
+ * There is no render device, so textures are never loaded.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class JvmPlatform extends Platform {
+
+  private static final String DEFAULT_ASSETS_DIR = "assets";
+
+  private final File assetsDir;
+
+  /** Reads assets from the "assets" directory under the working directory. */
+  public JvmPlatform() {
+    this(new File(DEFAULT_ASSETS_DIR));
+  }
+
+  public JvmPlatform(File assetsDir) {
+    this.assetsDir = assetsDir;
+  }
+
+  @Override
+  public void log(int level, String tag, String message, Throwable throwable) {
+    PrintStream out = level == ERROR ? System.err : System.out;
+    out.println(tag + ": " + message);
+    if (throwable != null) {
+      throwable.printStackTrace(out);
+    }
+  }
+
+  @Override
+  public InputStream openAsset(String path) throws IOException {
+    return new FileInputStream(new File(assetsDir, path));
+  }
+
+  @Override
+  public void addTexture(Texture texture) {
+    // Nothing is drawn, so there is nothing to load textures onto.
+  }
+}
@@ -0,0 +1,34 @@
+package com.zeddic.common.platform;
+
+/**
+ * Writes to the current {@link Platform}'s log. Mirrors the parts of
+ * android.util.Log the engine uses so that calls read the same everywhere.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class Log {
+
+  public static void d(String tag, String message) {
+    Platform.get().log(Platform.DEBUG, tag, message, null);
+  }
+
+  public static void i(String tag, String message) {
+    Platform.get().log(Platform.INFO, tag, message, null);
+  }
+
+  public static void i(String tag, String message, Throwable throwable) {
+    Platform.get().log(Platform.INFO, tag, message, throwable);
+  }
+
+  public static void w(String tag, String message) {
+    Platform.get().log(Platform.WARN, tag, message, null);
+  }
+
+  public static void e(String tag, String message) {
+    Platform.get().log(Platform.ERROR, tag, message, null);
+  }
+
+  public static void e(String tag, String message, Throwable throwable) {
+    Platform.get().log(Platform.ERROR, tag, message, throwable);
+  }
+}
@@ -0,0 +1,53 @@
+package com.zeddic.common.platform;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.zeddic.common.opengl.Texture;
+
+/**
+ * The few services the engine needs from whatever it is running on: logging,
+ * reading bundled assets, and loading textures onto the render device.
+ * Everything else in the engine core is plain Java, so with a
+ * {@link JvmPlatform} in place the simulation can be run, tested and
+ * profiled on a desktop JVM without a device.
+ *
+ * <p>A {@link JvmPlatform} is used until another is set. The Android app sets
+ * an {@link AndroidPlatform} when it starts.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public abstract class Platform {
+
+  public static final int DEBUG = 0;
+  public static final int INFO = 1;
+  public static final int WARN = 2;
+  public static final int ERROR = 3;
+
+  private static Platform platform = new JvmPlatform();
+
+  public static Platform get() {
+    return platform;
+  }
+
+  public static void set(Platform platform) {
+    Platform.platform = platform;
+  }
+
+  /**
+   * Writes a message to the platform's log. The throwable may be null.
+   */
+  public abstract void log(int level, String tag, String message, Throwable throwable);
+
+  /**
+   * Opens an asset bundled with the game, such as a level file, given its
+   * path relative to the assets directory.
+   */
+  public abstract InputStream openAsset(String path) throws IOException;
+
+  /**
+   * Registers a texture to be loaded onto the render device. Platforms that
+   * never draw anything may ignore it.
+   */
+  public abstract void addTexture(Texture texture);
+}
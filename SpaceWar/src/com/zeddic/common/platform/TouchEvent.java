@@ -0,0 +1,68 @@
+package com.zeddic.common.platform;
+
+/**
+ * A single touch input: what happened and where each finger on the screen
+ * was at the time. Action codes match Android's MotionEvent so they may be
+ * copied across unchanged.
+ *
+ * <p>Unlike a MotionEvent, a touch event is an ordinary object that can be
+ * queued, kept, or created by hand in a test.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class TouchEvent {
+
+  public static final int ACTION_MASK = 0xff;
+  public static final int ACTION_DOWN = 0;
+  public static final int ACTION_UP = 1;
+  public static final int ACTION_MOVE = 2;
+  public static final int ACTION_CANCEL = 3;
+  public static final int ACTION_POINTER_DOWN = 5;
+  public static final int ACTION_POINTER_UP = 6;
+
+  private final int action;
+  private final float[] x;
+  private final float[] y;
+
+  /** Creates a single finger event. */
+  public TouchEvent(int action, float x, float y) {
+    this(action, new float[] {x}, new float[] {y});
+  }
+
+  /** Creates an event with one entry in x and y for each finger. */
+  public TouchEvent(int action, float[] x, float[] y) {
+    this.action = action;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Returns the action. For multi-finger events the upper bits hold the index
+   * of the finger that changed; mask with {@link #ACTION_MASK} to remove it.
+   */
+  public int getAction() {
+    return action;
+  }
+
+  public int getPointerCount() {
+    return x.length;
+  }
+
+  /** Returns the x position of the first finger. */
+  public float getX() {
+    return x[0];
+  }
+
+  /** Returns the y position of the first finger. */
+  public float getY() {
+    return y[0];
+  }
+
+  public float getX(int pointer) {
+    return x[pointer];
+  }
+
+  public float getY(int pointer) {
+    return y[pointer];
+  }
+}
@@ -16,8 +16,6 @@
 
 package com.zeddic.common.transistions;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.GameObject;
 import com.zeddic.common.transistions.Transitions.TransitionType;
 
@@ -86,11 +84,6 @@ public class Transition implements GameObject {
     updateProgress();
   }
 
-  @Override
-  public void draw(GL10 gl) { 
-    // Nothing to draw. 
-  }
-  
   @Override
   public void reset() {
     passedTime = 0;
@@ -24,7 +24,7 @@ package com.zeddic.common.util;
 public class Bounds {
   
   public static final int POLYGON = 1;
-  public static final int CIRCLE = 1;
+  public static final int CIRCLE = 2;
   
   /** The shape of the bounds. */
   public int type;
@@ -42,6 +42,10 @@ public class Bounds {
    */
   public Shape shape;
   
+  /** The rotation and scale the shape was last transformed to. */
+  private float rotation = Float.NaN;
+  private float scale = Float.NaN;
+  
   public Bounds(Shape shape) {
     if (shape instanceof Circle) {
       type = CIRCLE;
@@ -55,9 +59,15 @@ public class Bounds {
   /**
    * Transforms a bounds by rotating it ands scaling it. These transformations
    * are applied to the _original_ shape, not the already transformed
-   * shape.
+   * shape. Does nothing if the rotation and scale haven't changed since
+   * the last transform, so it is cheap to call before every check.
    */
   public void transform(float rotation, float scale) {
+    if (rotation == this.rotation && scale == this.scale) {
+      return;
+    }
     raw.transform(rotation, scale, shape);
+    this.rotation = rotation;
+    this.scale = scale;
   }
 }
@@ -16,9 +16,6 @@
 
 package com.zeddic.common.util;
 
-import android.graphics.Path;
-import android.graphics.Path.Direction;
-
 /**
  * A circle shape.
  */
@@ -30,25 +27,34 @@ public class Circle extends Shape {
    * Creates a new circle with a given radius.
    */
   public Circle(float radius) {
+    setRadius(radius);
+  }
+  
+  /**
+   * Changes the circle's radius, along with its size and box.
+   */
+  public void setRadius(float radius) {
     this.radius = radius;
     this.diameter = radius * 2;
     this.width = diameter;
     this.height = diameter;
-    buildPath();
+    this.left = -radius;
+    this.top = -radius;
+    this.right = radius;
+    this.bottom = radius;
   }
 
   @Override
   public void transform(float rotation, float scale, Shape otherShape) {
     
     if (otherShape == null)
-      otherShape = copy();
+      return;
     
     if (!(otherShape instanceof Circle))
       return;
 
     Circle other = (Circle) otherShape;
-    other.radius = radius * scale;
-    other.diameter = other.radius * 2;
+    other.setRadius(radius * scale);
   }
   
   @Override
@@ -56,12 +62,6 @@ public class Circle extends Shape {
     return new Circle(radius);
   }
   
-  @Override
-  public void buildPath() {
-    path = new Path();
-    path.addCircle(0, 0, radius, Direction.CCW);
-  }
-  
   @Override
   public void projectOnAxis(
       float xOffset,
@@ -1,7 +1,5 @@
 package com.zeddic.common.util;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.GameObject;
 
@@ -20,13 +18,6 @@ public class Components extends AbstractGameObject {
     }
   }
   
-  public void draw(GL10 gl) {
-    int size = children.size;
-    for ( int i = 0 ; i < size ; i++) {
-      children.items[i].draw(gl);
-    }
-  }
-  
   public void update(long time) {
     int size = children.size;
     for ( int i = 0 ; i < size ; i++) {
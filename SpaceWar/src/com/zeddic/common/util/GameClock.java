@@ -0,0 +1,32 @@
+package com.zeddic.common.util;
+
+/**
+ * Tracks how much game time has been simulated. Objects that need to know
+ * the current time (such as guns checking their fire rate) should read it from
+ * here rather than from the system clock so that the game behaves the same
+ * no matter how fast or slow it is actually being stepped.
+ * 
+ * <p>The clock only moves when told to via {@link #advance(long)}, normally
+ * once per update by whatever drives the game loop.
+ * 
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class GameClock {
+
+  private static long time = 0;
+  
+  /** Returns the number of milliseconds of game time simulated so far. */
+  public static long now() {
+    return time;
+  }
+  
+  /** Moves the clock forward by the given number of milliseconds. */
+  public static void advance(long millis) {
+    time += millis;
+  }
+  
+  /** Sets the clock back to zero. */
+  public static void reset() {
+    time = 0;
+  }
+}
@@ -18,7 +18,7 @@ package com.zeddic.common.util;
 
 import java.lang.reflect.Array;
 
-import android.util.Log;
+import com.zeddic.common.platform.Log;
 
 /**
  * Represents a reusable pool of objects. Objects are created on initialization
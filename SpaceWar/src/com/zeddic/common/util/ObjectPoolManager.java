@@ -1,10 +1,9 @@
 package com.zeddic.common.util;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.util.Log;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.Entity;
+import com.zeddic.common.opengl.RenderSnapshot;
+import com.zeddic.common.platform.Log;
 import com.zeddic.common.util.ObjectPool.ObjectBuilder;
 
 /**
@@ -37,6 +36,12 @@ public class ObjectPoolManager<T extends AbstractGameObject> extends AbstractGam
   /** The maximum number of objects to keep alive within the pool. */
   private final int poolSize;
   
+  /** Decides how often each object is updated, or null to update every tick. */
+  private UpdateTiers tiers;
+  
+  /** Milliseconds each object has not yet been updated for. */
+  private long[] pendingTime;
+  
   /**
    * Creates a new pool of the given class. Objects in the pool will be 
    * created by calling their default constructor.
@@ -108,26 +113,44 @@ public class ObjectPoolManager<T extends AbstractGameObject> extends AbstractGam
   }
   
   /**
-   * Draws all objects in the pool. Skips non-active objects.
+   * Records all objects in the pool for drawing. Skips non-active objects.
    */
-  public void draw(GL10 gl) {
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
     T gameObject;
     for ( int i = 0 ; i < pool.items.length ; i++) {
       gameObject = pool.items[i];
       if (gameObject.enabled)
-        gameObject.draw(gl);
+        gameObject.snapshot(snapshot);
     }
   }
   
   /**
-   * Updates all objects in the pool. Skips non-active objects.
+   * Sets the tiers used to update distant objects less often. Only used if
+   * the pool holds entities. Pass null to update every object every tick.
+   */
+  public void setUpdateTiers(UpdateTiers tiers) {
+    this.tiers = tiers;
+    this.pendingTime = tiers == null ? null : new long[pool.items.length];
+  }
+  
+  /**
+   * Updates all objects in the pool. Skips non-active and sleeping objects.
+   * With update tiers set, distant objects are only updated when due and are
+   * then given all of the time since their last update.
    */
   public void update(long time) {
     T gameObject;
     for ( int i = 0 ; i < pool.items.length ; i++) {
       gameObject = pool.items[i];
-      if (gameObject.enabled) {
-        gameObject.update(time);
+      if (gameObject.enabled && !gameObject.sleeping) {
+        if (tiers == null || !(gameObject instanceof Entity)) {
+          gameObject.update(time);
+        } else {
+          updateTiered(i, gameObject, time);
+        }
+      } else if (pendingTime != null) {
+        pendingTime[i] = 0;
       }
       
       if (gameObject.canRecycle) {
@@ -139,6 +162,72 @@ public class ObjectPoolManager<T extends AbstractGameObject> extends AbstractGam
     }
   }
   
+  private void updateTiered(int i, T gameObject, long time) {
+    pendingTime[i] += time;
+    int interval = tiers.getInterval((Entity) gameObject, time);
+    
+    // Also update anything that has waited a full interval, in case it only
+    // just moved to a slower tier and its slot has not come up yet.
+    if (tiers.isDue(i, interval) || pendingTime[i] >= interval * time) {
+      long elapsed = pendingTime[i];
+      pendingTime[i] = 0;
+      gameObject.update(elapsed);
+    }
+  }
+  
+  /**
+   * Returns how many objects in the pool are currently enabled.
+   */
+  public int getActiveCount() {
+    int count = 0;
+    for ( int i = 0 ; i < pool.items.length ; i++) {
+      if (pool.items[i].enabled) {
+        count++;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Returns how many enabled objects in the pool are sleeping.
+   */
+  public int getSleepingCount() {
+    int count = 0;
+    for ( int i = 0 ; i < pool.items.length ; i++) {
+      if (pool.items[i].enabled && pool.items[i].sleeping) {
+        count++;
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Returns the position of the given object within the pool, or -1 if it
+   * does not belong to it. Positions never change, so they may be used to
+   * refer to a pooled object outside the running game, such as in a
+   * recorded battle.
+   */
+  public int indexOf(T object) {
+    for ( int i = 0 ; i < pool.items.length ; i++) {
+      if (pool.items[i] == object) {
+        return i;
+      }
+    }
+    return -1;
+  }
+  
+  /** Returns the object at the given position within the pool. */
+  public T get(int index) {
+    return pool.items[index];
+  }
+  
+  /**
+   * Returns the total number of objects in the pool, enabled or not.
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+  
   /**
    * Sets all items in the pool to the active state.
    */
@@ -1,11 +1,10 @@
 package com.zeddic.common.util;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.opengl.RenderSnapshot;
 
 /**
  * Creates and manages multiple object pools of different classes. A pool
@@ -17,8 +16,8 @@ import com.zeddic.common.AbstractGameObject;
  * will return null.
  * 
  * <p>Note that in order to function, the stock pile must have its update() and
- * draw() methods called on every update cycle. These calls will draw all
- * currently active objects in the pool.
+ * snapshot() methods called on every update cycle. These calls will update and
+ * record for drawing all currently active objects in the pool.
  * 
  * <p>Example uses:
  * <code>
@@ -36,7 +35,9 @@ public class ObjectStockpile extends AbstractGameObject {
   public Map<Class<? extends AbstractGameObject>, ObjectPoolManager<? extends AbstractGameObject>> supply;
     
   public ObjectStockpile() {
-    supply = new HashMap<Class<? extends AbstractGameObject>, ObjectPoolManager<? extends AbstractGameObject>>();
+    // Pools are kept in creation order so every run updates them in the same
+    // order, which keeps recorded battles replayable.
+    supply = new LinkedHashMap<Class<? extends AbstractGameObject>, ObjectPoolManager<? extends AbstractGameObject>>();
   }
  
   /**
@@ -50,6 +51,16 @@ public class ObjectStockpile extends AbstractGameObject {
     return pool;
   }
   
+  /**
+   * Sets the tiers used by every pool to update distant objects less often.
+   * See {@link UpdateTiers}.
+   */
+  public void setUpdateTiers(UpdateTiers tiers) {
+    for (ObjectPoolManager<? extends AbstractGameObject> pool : supply.values()) {
+      pool.setUpdateTiers(tiers);
+    }
+  }
+  
   /**
    * Causes all pools to be reset, automatically recycling all taken objects
    * and restoring them to their respective pools.
@@ -70,12 +81,24 @@ public class ObjectStockpile extends AbstractGameObject {
   }
   
   /**
-   * Calls the draw method on all currently enabled objects in all pools.
+   * Calls the snapshot method on all currently enabled objects in all pools.
+   */
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
+    for (ObjectPoolManager<? extends AbstractGameObject> pool : supply.values()) {
+      pool.snapshot(snapshot);
+    }
+  }
+  
+  /**
+   * Returns how many objects are currently enabled across all pools.
    */
-  public void draw(GL10 gl) {
+  public int getActiveCount() {
+    int count = 0;
     for (ObjectPoolManager<? extends AbstractGameObject> pool : supply.values()) {
-      pool.draw(gl);
+      count += pool.getActiveCount();
     }
+    return count;
   }
   
   /**
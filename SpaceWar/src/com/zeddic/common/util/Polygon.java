@@ -19,19 +19,24 @@ package com.zeddic.common.util;
 import java.util.ArrayList;
 import java.util.List;
 
-import android.graphics.Path;
-import android.util.FloatMath;
+import com.zeddic.common.platform.FloatMath;
 
 public class Polygon extends Shape {
 
   public Vector2d[] edges;
   public Vector2d[] points;
   
+  /**
+   * The unit normal of each edge. These are the axes to check when looking
+   * for a gap between this polygon and another shape.
+   */
+  public Vector2d[] normals;
+  
   protected Polygon(Vector2d[] points) {
     this.points = points;
     edges = new Vector2d[points.length];
+    normals = new Vector2d[points.length];
     buildEdges();
-    buildPath();
     buildWidthHeight();
   }
   
@@ -47,10 +52,29 @@ public class Polygon extends Shape {
           point.x - prev.x,
           point.y - prev.y);
       edges[i - 1] = edge;
+      normals[i - 1] = new Vector2d();
+      buildNormal(i - 1);
       prev = point;
     }
   }
   
+  /**
+   * Works out the unit normal of an edge. An edge of no length has no
+   * normal, and is left as zero.
+   */
+  private void buildNormal(int i) {
+    Vector2d edge = edges[i];
+    Vector2d normal = normals[i];
+    float length = FloatMath.sqrt(edge.x * edge.x + edge.y * edge.y);
+    if (length == 0) {
+      normal.x = 0;
+      normal.y = 0;
+    } else {
+      normal.x = -edge.y / length;
+      normal.y = edge.x / length;
+    }
+  }
+  
   public void buildWidthHeight() {
     float minX = Float.MAX_VALUE;
     float maxX = -Float.MAX_VALUE;
@@ -66,6 +90,11 @@ public class Polygon extends Shape {
       maxY = Math.max(point.y, maxY);
     }
   
+    left = minX;
+    right = maxX;
+    top = minY;
+    bottom = maxY;
+    
     float newWidth = maxX - minX;
     float newHeight = maxY - minY;
     if (width != newWidth || height != newHeight) {
@@ -86,22 +115,11 @@ public class Polygon extends Shape {
       edge = edges[i - 1];
       edge.x = point.x - prev.x;
       edge.y = point.y - prev.y;
+      buildNormal(i - 1);
       prev = point;
     }
   }
   
-  @Override
-  public void buildPath() {
-    path = new Path();
-    Vector2d point = points[0];
-    path.moveTo(point.x, point.y);
- 
-    for (int i = 1 ; i <= points.length ; i++) {
-      point = points[i % points.length];
-      path.lineTo(point.x, point.y);
-    }
-  }
-  
   @Override
   public void projectOnAxis(
       float xOffset,
@@ -168,16 +186,7 @@ public class Polygon extends Shape {
       point.y *= scale;
     }
     other.rebuildEdges();
-    
-    float newWidth = height * scale;
-    float newHeight = width * scale;
-    if (newWidth != other.width || newHeight != other.height) {
-      other.width = newWidth;
-      other.height = newHeight;
-      other.radius = (float) Math.sqrt(
-          other.width * other.width / 4 +
-          other.height * other.height / 4);
-    }
+    other.buildWidthHeight();
   }
   
   
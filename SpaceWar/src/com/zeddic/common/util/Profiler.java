@@ -0,0 +1,133 @@
+package com.zeddic.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long named sections of each frame take. Each section is a
+ * {@link Scope} that is obtained once, typically stored in a static field,
+ * then wrapped around the code to measure with begin() and end():
+ *
+ * <code>
+ * private static final Scope UPDATE_SHIPS = Profiler.get().scope("update.ships");
+ *
+ * UPDATE_SHIPS.begin();
+ * ships.update(time);
+ * UPDATE_SHIPS.end();
+ * </code>
+ *
+ * <p>Timings go into a fixed size {@link Samples} buffer per scope, so
+ * measuring allocates nothing and may be left on in release builds. A scope
+ * should only be timed from one thread, though reports may be requested from
+ * any thread. Each scope guards its own samples, so scopes timed on
+ * different threads never wait on each other, only on a report reading
+ * that same scope.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class Profiler {
+
+  /** How many of the most recent timings each scope keeps. */
+  public static final int DEFAULT_WINDOW = 300;
+
+  private static final float NANOS_PER_MILLI = 1000000f;
+
+  private static final Profiler singleton = new Profiler();
+
+  private final List<Scope> scopes = new ArrayList<Scope>();
+
+  /** When false, scopes ignore begin() and end() calls. */
+  public volatile boolean enabled = true;
+
+  public static Profiler get() {
+    return singleton;
+  }
+
+  /**
+   * Returns the scope with the given name, creating it if needed.
+   */
+  public synchronized Scope scope(String name) {
+    for (int i = 0; i < scopes.size(); i++) {
+      if (scopes.get(i).name.equals(name)) {
+        return scopes.get(i);
+      }
+    }
+
+    Scope scope = new Scope(this, name, DEFAULT_WINDOW);
+    scopes.add(scope);
+    return scope;
+  }
+
+  /** Erases all collected timings. */
+  public synchronized void reset() {
+    for (int i = 0; i < scopes.size(); i++) {
+      Scope scope = scopes.get(i);
+      synchronized (scope) {
+        scope.samples.clear();
+      }
+    }
+  }
+
+  /**
+   * Returns a table of min, average, 95th and 99th percentile, and max
+   * timings in milliseconds for every scope that has been timed.
+   */
+  public synchronized String report() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("%-20s %8s %8s %8s %8s %8s\n",
+        "scope", "min", "avg", "p95", "p99", "max"));
+
+    for (int i = 0; i < scopes.size(); i++) {
+      Scope scope = scopes.get(i);
+      synchronized (scope) {
+        Samples samples = scope.samples;
+        if (samples.size() == 0) {
+          continue;
+        }
+
+        builder.append(String.format("%-20s %8.3f %8.3f %8.3f %8.3f %8.3f\n",
+            scope.name,
+            samples.getMin() / NANOS_PER_MILLI,
+            samples.getAverage() / NANOS_PER_MILLI,
+            samples.getPercentile(95) / NANOS_PER_MILLI,
+            samples.getPercentile(99) / NANOS_PER_MILLI,
+            samples.getMax() / NANOS_PER_MILLI));
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * A single named section of code being timed.
+   */
+  public static class Scope {
+    public final String name;
+    private final Profiler profiler;
+    private final Samples samples;
+    private long start = -1;
+
+    private Scope(Profiler profiler, String name, int window) {
+      this.profiler = profiler;
+      this.name = name;
+      this.samples = new Samples(window);
+    }
+
+    /** Starts timing. */
+    public void begin() {
+      start = profiler.enabled ? System.nanoTime() : -1;
+    }
+
+    /** Stops timing and records how long it has been since begin(). */
+    public void end() {
+      if (start == -1) {
+        return;
+      }
+
+      long elapsed = System.nanoTime() - start;
+      start = -1;
+      synchronized (this) {
+        samples.add(elapsed);
+      }
+    }
+  }
+}
@@ -22,6 +22,14 @@ public class RandomUtil {
 
   static Random random = new Random();
   
+  /**
+   * Reseeds the shared random generator. Useful for making a run of the game
+   * repeatable.
+   */
+  public static void setSeed(long seed) {
+    random.setSeed(seed);
+  }
+  
   public static int nextInt(int max) {
     return random.nextInt(max);
   }
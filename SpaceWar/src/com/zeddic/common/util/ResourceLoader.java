@@ -31,7 +31,8 @@ import android.graphics.Bitmap.Config;
 import android.graphics.drawable.Drawable;
 import android.media.AudioManager;
 import android.media.SoundPool;
-import android.util.Log;
+
+import com.zeddic.common.platform.Log;
 
 public class ResourceLoader {
   
@@ -1,8 +1,105 @@
 package com.zeddic.common.util;
 
+import java.util.Arrays;
+
 /**
- * A utility class for collecting statistics on data samples.
+ * A utility class for collecting statistics on data samples. Keeps the most
+ * recent N samples in a fixed size ring buffer of primitives, so adding a
+ * sample never allocates. Statistics are calculated over whichever samples
+ * are currently held.
+ * 
+ * <p>Percentiles require sorting the held samples, which is done in a second
+ * preallocated buffer. They are meant to be read occasionally, such as when
+ * printing a report, rather than every frame.
+ * 
+ * @author scott@zeddic.com (Scott Bailey)
  */
 public class Samples {
 
+  private final long[] values;
+  private final long[] sorted;
+  private int count = 0;
+  private int next = 0;
+  
+  public Samples(int capacity) {
+    values = new long[capacity];
+    sorted = new long[capacity];
+  }
+  
+  /** Adds a sample, replacing the oldest if already full. */
+  public void add(long value) {
+    values[next] = value;
+    next = (next + 1) % values.length;
+    if (count < values.length) {
+      count++;
+    }
+  }
+  
+  /** Returns the number of samples currently held. */
+  public int size() {
+    return count;
+  }
+  
+  /** Returns the smallest held sample, or 0 if there are none. */
+  public long getMin() {
+    if (count == 0) {
+      return 0;
+    }
+    
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < count; i++) {
+      min = Math.min(min, values[i]);
+    }
+    return min;
+  }
+  
+  /** Returns the largest held sample, or 0 if there are none. */
+  public long getMax() {
+    if (count == 0) {
+      return 0;
+    }
+    
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      max = Math.max(max, values[i]);
+    }
+    return max;
+  }
+  
+  /** Returns the average of held samples, or 0 if there are none. */
+  public long getAverage() {
+    if (count == 0) {
+      return 0;
+    }
+    
+    long total = 0;
+    for (int i = 0; i < count; i++) {
+      total += values[i];
+    }
+    return total / count;
+  }
+  
+  /**
+   * Returns the value that the given percent of held samples are less than
+   * or equal to. For example, 95 returns the 95th percentile. Returns 0 if
+   * there are no samples.
+   */
+  public long getPercentile(float percent) {
+    if (count == 0) {
+      return 0;
+    }
+    
+    System.arraycopy(values, 0, sorted, 0, count);
+    Arrays.sort(sorted, 0, count);
+    
+    int index = (int) Math.ceil(percent / 100 * count) - 1;
+    index = Math.max(0, Math.min(count - 1, index));
+    return sorted[index];
+  }
+  
+  /** Erases all held samples. */
+  public void clear() {
+    count = 0;
+    next = 0;
+  }
 }
@@ -16,8 +16,6 @@
 
 package com.zeddic.common.util;
 
-import android.graphics.Path;
-
 /**
  * Base class for any arbitrary shape.
  */
@@ -26,31 +24,35 @@ public class Shape {
   public float width = 0;
   public float height = 0;
   public float radius = 0; 
-  public Path path;
+  
+  /**
+   * The box around the shape, relative to its position. Checked before
+   * anything more exact so shapes that are nowhere near each other are
+   * ruled out cheaply.
+   */
+  public float left = 0;
+  public float top = 0;
+  public float right = 0;
+  public float bottom = 0;
   
   /**
    * Transforms the shape by rotating it and scaling it. The scaled shape
-   * is stored in the parameter "other". If other is null, a new copy is 
-   * created and scaled. The original shape is not modified. 
+   * is stored in the parameter "other", which should be a copy of this
+   * shape. Nothing is done if other is null. The original shape is not
+   * modified. 
    */
   public void transform(float rotation, float scale, Shape other) {
     
   }
   
   /**
-   * Creates an exact copy of the shape.
+   * Creates an exact copy of the shape. This allocates, so copies should be
+   * made up front rather than during collision checks.
    */
   public Shape copy() {
     return null;
   }
   
-  /**
-   * Builds a path representing the shape.
-   */
-  public void buildPath() {
-
-  }
-  
   /**
    * Projects a shape onto an arbitrary axis in 2D space. The projection
    * of the shape will take up a span on the axis, which will be contained
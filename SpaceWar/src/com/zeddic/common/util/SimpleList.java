@@ -18,7 +18,7 @@ package com.zeddic.common.util;
 
 import java.lang.reflect.Array;
 
-import android.util.Log;
+import com.zeddic.common.platform.Log;
 
 public class SimpleList<T> {
   
@@ -64,6 +64,19 @@ public class SimpleList<T> {
     size++;
   }
   
+  /**
+   * Adds an object without first checking whether it is already in the
+   * list. Returns the index it was placed at.
+   */
+  public int append(T object) {
+    if (size == items.length) {
+      grow();
+    }
+    
+    items[size] = object;
+    return size++;
+  }
+  
   public boolean contains(T object) {
     for (int i = 0 ; i < size ; i++) {
       if (items[i] == object) {
@@ -89,6 +102,24 @@ public class SimpleList<T> {
     return false;
   }
   
+  /**
+   * Removes the object at the given index by moving the last object in the
+   * list into its place. Unlike {@link #remove(Object)} this takes the same
+   * time no matter how long the list is, but it does not keep the order.
+   * Returns the object that was moved, or null if the removed object was the
+   * last one.
+   */
+  public T removeAt(int index) {
+    size--;
+    T moved = null;
+    if (index != size) {
+      moved = items[size];
+      items[index] = moved;
+    }
+    items[size] = null;
+    return moved;
+  }
+  
   /**
    * Clears the list. Note that this doesn't resize the underlying datastructure
    * and the memory will still be used. This just resets future entries to
@@ -0,0 +1,102 @@
+package com.zeddic.common.util;
+
+import com.zeddic.common.Entity;
+
+/**
+ * Decides how often entities should be updated based on how far they are
+ * from a point of focus, normally the area the player is looking at.
+ *
+ * <p>Entities within the focus radius, or within one tier's width outside of
+ * it, are updated every tick. Each further tier doubles the number of ticks
+ * between updates, up to a maximum set by the tolerance: the longest stretch
+ * of game time an entity may go without an update. Skipped time is not lost;
+ * the pool holds on to it and passes it all in at the next update.
+ *
+ * <p>Entities in the same tier don't all update on the same tick. Each
+ * entity is given a slot, usually its position in its pool, and is updated
+ * when its slot comes up. This spreads the work evenly across ticks.
+ *
+ * <p>Until a focus is set, every entity is updated every tick.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class UpdateTiers {
+
+  private static final float DEFAULT_TIER_SIZE = 256;
+  private static final long DEFAULT_TOLERANCE = 100;
+
+  private float tierSize = DEFAULT_TIER_SIZE;
+  private long tolerance = DEFAULT_TOLERANCE;
+
+  private boolean focused = false;
+  private float focusX;
+  private float focusY;
+  private float focusRadius;
+
+  private long tick;
+
+  /** Sets the width of each tier beyond the focus radius. */
+  public void setTierSize(float tierSize) {
+    this.tierSize = Math.max(1, tierSize);
+  }
+
+  /**
+   * Sets the most milliseconds of game time an entity may go without being
+   * updated. Zero updates every entity every tick.
+   */
+  public void setTolerance(long tolerance) {
+    this.tolerance = Math.max(0, tolerance);
+  }
+
+  /** Sets the point of focus and the radius around it to fully update. */
+  public void setFocus(float x, float y, float radius) {
+    focused = true;
+    focusX = x;
+    focusY = y;
+    focusRadius = radius;
+  }
+
+  /** Removes the point of focus so that everything updates every tick. */
+  public void clearFocus() {
+    focused = false;
+  }
+
+  /** Forgets the focus and starts counting ticks from zero. */
+  public void reset() {
+    focused = false;
+    tick = 0;
+  }
+
+  /** Moves on to the next tick. Should be called once per tick. */
+  public void advance() {
+    tick++;
+  }
+
+  /**
+   * Returns the number of ticks between updates for an entity, given the
+   * length of a tick in milliseconds.
+   */
+  public int getInterval(Entity entity, long tickLength) {
+    if (!focused || tickLength <= 0) {
+      return 1;
+    }
+
+    float dX = entity.x - focusX;
+    float dY = entity.y - focusY;
+    float distance = (float) Math.sqrt(dX * dX + dY * dY) - focusRadius;
+    int tier = (int) (distance / tierSize);
+    if (tier <= 0) {
+      return 1;
+    }
+
+    int maxInterval = (int) Math.max(1, tolerance / tickLength);
+    return Math.min(1 << Math.min(tier, 30), maxInterval);
+  }
+
+  /**
+   * Returns true if the entity in the given slot should be updated this tick.
+   */
+  public boolean isDue(int slot, int interval) {
+    return interval <= 1 || (tick + slot) % interval == 0;
+  }
+}
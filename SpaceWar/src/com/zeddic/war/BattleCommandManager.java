@@ -1,14 +1,12 @@
 package com.zeddic.war;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.view.MotionEvent;
-
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.opengl.Color;
-import com.zeddic.common.opengl.SimpleGeometry;
+import com.zeddic.common.opengl.RenderSnapshot;
+import com.zeddic.common.platform.TouchEvent;
 import com.zeddic.common.util.SimpleList;
 import com.zeddic.common.util.Vector2d;
+import com.zeddic.war.collision.CollisionLayers;
 import com.zeddic.war.collision.ProximityUtil;
 import com.zeddic.war.ships.FighterShip;
 import com.zeddic.war.ships.LocationTarget;
@@ -28,22 +26,22 @@ public class BattleCommandManager extends AbstractGameObject {
     
   }
 
-  public boolean onTouch(MotionEvent e) {
+  public boolean onTouch(TouchEvent e) {
     switch (e.getAction()) {
-      case MotionEvent.ACTION_DOWN: return onPress(e);
-      case MotionEvent.ACTION_UP: return onRelease(e);
-      case MotionEvent.ACTION_MOVE: return onMove(e);
+      case TouchEvent.ACTION_DOWN: return onPress(e);
+      case TouchEvent.ACTION_UP: return onRelease(e);
+      case TouchEvent.ACTION_MOVE: return onMove(e);
       default: return onCancel(e);
     }
   }
   
-  private boolean onPress(MotionEvent e) {
+  private boolean onPress(TouchEvent e) {
     this.selection = null;
     
     Vector2d world = GameState.camera.convertToWorld(new Vector2d(e.getX(), e.getY()));
     
     FighterShip ship = (FighterShip) ProximityUtil.getClosest(
-        FighterShip.class,
+        CollisionLayers.FRIENDLY_SHIPS,
         world.x, world.y, 
         SELECTION_RANGE);
     if (ship != null) {
@@ -61,7 +59,7 @@ public class BattleCommandManager extends AbstractGameObject {
     return this.selection != null;
   }
 
-  private boolean onRelease(MotionEvent e) {
+  private boolean onRelease(TouchEvent e) {
     if (selection == null) {
       return false;
     }
@@ -69,21 +67,7 @@ public class BattleCommandManager extends AbstractGameObject {
     Vector2d world = GameState.camera.convertToWorld(new Vector2d(e.getX(), e.getY()));
 
     if (selection.isShip()) {
-      if (selection.ship.getTarget() != null) {
-        selection.ship.getTarget().set(world.x, world.y);
-      } else {
-        final LocationTarget target = new LocationTarget(world.x, world.y);
-        target.addFollower(selection.ship);
-        target.addReachedHandler(new Runnable() {
-            @Override
-            public void run() {
-              targets.remove(target);
-            }
-          });
-        
-        targets.add(target);
-        selection.ship.setTarget(target);
-      }
+      GameState.world.moveShip(selection.ship, world.x, world.y);
     }
     
     selection = null;
@@ -91,7 +75,52 @@ public class BattleCommandManager extends AbstractGameObject {
     return true;
   }
   
-  private boolean onMove(MotionEvent e) {
+  /**
+   * Sends a ship to the given location, reusing its current target if it
+   * already has one. Player input should go through
+   * {@link WarWorld#moveShip} instead so the command can be recorded.
+   */
+  public void moveShip(FighterShip ship, float x, float y) {
+    if (ship.getTarget() != null) {
+      ship.getTarget().set(x, y);
+    } else {
+      final LocationTarget target = new LocationTarget(x, y);
+      target.addFollower(ship);
+      target.addReachedHandler(new Runnable() {
+          @Override
+          public void run() {
+            targets.remove(target);
+          }
+        });
+      
+      targets.add(target);
+      ship.setTarget(target);
+    }
+  }
+  
+  /**
+   * Moves an existing target. Player input should go through
+   * {@link WarWorld#moveTarget} instead so the command can be recorded.
+   */
+  public void moveTarget(Target target, float x, float y) {
+    target.set(x, y);
+  }
+  
+  /** Returns the position of a target in the list of active targets. */
+  public int indexOf(Target target) {
+    for (int i = 0; i < targets.size; i++) {
+      if (targets.items[i] == target) {
+        return i;
+      }
+    }
+    return -1;
+  }
+  
+  public Target getTarget(int index) {
+    return targets.items[index];
+  }
+  
+  private boolean onMove(TouchEvent e) {
     if (selection == null) {
       return false;
     }
@@ -102,13 +131,13 @@ public class BattleCommandManager extends AbstractGameObject {
     lastY = world.y;
     
     if (!selection.isShip()) {
-      selection.target.set(lastX, lastY);
+      GameState.world.moveTarget(selection.target, lastX, lastY);
     }
     
     return true;
   }
   
-  private boolean onCancel(MotionEvent e) {
+  private boolean onCancel(TouchEvent e) {
     selection = null;
     return false;
   }
@@ -118,10 +147,10 @@ public class BattleCommandManager extends AbstractGameObject {
   }
   
   @Override
-  public void draw(GL10 gl) {
+  public void snapshot(RenderSnapshot snapshot) {
     
     for (int i = 0; i < targets.size; i++) {
-      targets.items[i].draw(gl);
+      targets.items[i].snapshot(snapshot);
     }
     
     if (!hasSelection()) {
@@ -129,9 +158,10 @@ public class BattleCommandManager extends AbstractGameObject {
     }
 
     if (selection.isShip()) {
-            
-      float dX = lastX - selection.ship.x;
-      float dY = lastY - selection.ship.y;
+      
+      FighterShip ship = selection.ship;
+      float dX = lastX - ship.x;
+      float dY = lastY - ship.y;
       
       if (dX * dX + dY * dY > 25 * 25) {
         Vector2d temp = new Vector2d(dX, dY);
@@ -139,7 +169,11 @@ public class BattleCommandManager extends AbstractGameObject {
         temp.x *= 25;
         temp.y *= 25;
         
-        SimpleGeometry.drawLine(gl, selection.ship.x + temp.x, selection.ship.y + temp.y, lastX, lastY, color);
+        snapshot.addLine(
+            ship.getLastX() + temp.x, ship.getLastY() + temp.y,
+            ship.x + temp.x, ship.y + temp.y,
+            lastX, lastY, lastX, lastY,
+            color);
       }
     }
   }
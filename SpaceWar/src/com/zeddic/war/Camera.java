@@ -1,19 +1,17 @@
 package com.zeddic.war;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.util.FloatMath;
-import android.view.MotionEvent;
-
 import com.zeddic.common.GameObject;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Screen;
+import com.zeddic.common.platform.FloatMath;
+import com.zeddic.common.platform.TouchEvent;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.level.Level;
 
 /**
  * A camera simulates zooming and panning within the game world.
- * The camera should be applied to the gl matrix stack before
- * drawing any world objects.
+ * The camera is recorded into each render snapshot, which applies it to the
+ * gl matrix stack before drawing any world objects.
  * 
  * @author Scott Bailey
  */
@@ -48,23 +46,23 @@ public /*class*/enum Camera implements GameObject {
   /**
    * Translates user input to pan and zoom commands.
    */
-  public void onTouchEvent(MotionEvent e) {
+  public void onTouchEvent(TouchEvent e) {
     int action = e.getAction();
-    int actionCode = action & MotionEvent.ACTION_MASK;
+    int actionCode = action & TouchEvent.ACTION_MASK;
     switch (actionCode) {
-      case MotionEvent.ACTION_DOWN: onPress(e); break;
-      case MotionEvent.ACTION_POINTER_DOWN: onPinchStart(e); break;
-      case MotionEvent.ACTION_UP: onRelease(e); break;
-      case MotionEvent.ACTION_MOVE: onMove(e); break;
+      case TouchEvent.ACTION_DOWN: onPress(e); break;
+      case TouchEvent.ACTION_POINTER_DOWN: onPinchStart(e); break;
+      case TouchEvent.ACTION_UP: onRelease(e); break;
+      case TouchEvent.ACTION_MOVE: onMove(e); break;
       default: onCancel(e); break;
     }
   }
 
-  private void onPress(MotionEvent e) {
+  private void onPress(TouchEvent e) {
     recordInput(e, 0, lastPoint1);
   }
   
-  private void onPinchStart(MotionEvent e){
+  private void onPinchStart(TouchEvent e){
     recordInput(e, 0, lastPoint1);
     recordInput(e, 1, lastPoint2);
     
@@ -73,7 +71,7 @@ public /*class*/enum Camera implements GameObject {
     anchorZoom();
   }
 
-  private void onMove(MotionEvent e) {
+  private void onMove(TouchEvent e) {
     if (e.getPointerCount() > 1) {
       onZoomMove(e);
     } else {
@@ -81,7 +79,7 @@ public /*class*/enum Camera implements GameObject {
     }
   }
   
-  private void onZoomMove(MotionEvent e) {
+  private void onZoomMove(TouchEvent e) {
     
     // Determine how much the fingers have moved part.
     float initialDistance = getDistance(lastPoint1, lastPoint2);
@@ -108,7 +106,7 @@ public /*class*/enum Camera implements GameObject {
         getMidpoint(lastPoint1, lastPoint2));
   }
 
-  private void onPanMove(MotionEvent e) {
+  private void onPanMove(TouchEvent e) {
     // Don't allow panning until a zoom operation has finished.
     if (hasZoomAnchor()) {
       return;
@@ -128,12 +126,12 @@ public /*class*/enum Camera implements GameObject {
     recordInput(e, 0, lastPoint1);
   }
   
-  private void onRelease(MotionEvent e) {
+  private void onRelease(TouchEvent e) {
     zoomAnchor = null;
     needPanData = true;
   }
 
-  private void onCancel(MotionEvent e) {
+  private void onCancel(TouchEvent e) {
     zoomAnchor = null;
     needPanData = true;
   }
@@ -153,33 +151,18 @@ public /*class*/enum Camera implements GameObject {
   }
 
   /**
-   * Applys the camera open gl transformation. Functionally this works by 
+   * Records the camera transformation. Functionally this works by 
    * translating the entire world in the inverse direction of the cameras
-   * movement. {@link #end} should be called after all entities affected
-   * by the camera have been drawn.
-   */
-  public void apply(GL10 gl) {
-    enforceBounds();
-    
-    gl.glPushMatrix();
-    gl.glScalef(scale, scale, 0);
-    gl.glTranslatef(x, y, 0);
-  }
-  
-  /**
-   * Ends the transformations for the camera. These should be ended before
-   * drawing anything in the global 'screen' space, such as menus, that are
-   * unaffected by camera movement.
+   * movement.
    */
-  public void end(GL10 gl) {
-    gl.glPopMatrix();
+  public void snapshot(RenderSnapshot snapshot) {
+    snapshot.setView(x, y, scale);
   }
 
   @Override
-  public void draw(GL10 gl) { }
-
-  @Override
-  public void update(long time) {}
+  public void update(long time) {
+    enforceBounds();
+  }
 
   @Override
   public void reset() {
@@ -203,7 +186,7 @@ public /*class*/enum Camera implements GameObject {
         (screen.y / scale - y));
   }
   
-  public Vector2d convertToWorld(MotionEvent e) {
+  public Vector2d convertToWorld(TouchEvent e) {
     return convertToWorld(new Vector2d(e.getX(), e.getY()));
   }
   
@@ -291,7 +274,7 @@ public /*class*/enum Camera implements GameObject {
   }
   
   /** Stores a motion event into a vector. */
-  private static final void recordInput(MotionEvent e, int motionIndex, Vector2d saveIn) {
+  private static final void recordInput(TouchEvent e, int motionIndex, Vector2d saveIn) {
     saveIn.x = e.getX(motionIndex);
     saveIn.y = e.getY(motionIndex);
   }
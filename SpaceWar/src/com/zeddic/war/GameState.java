@@ -16,31 +16,22 @@
 
 package com.zeddic.war;
 
-import android.app.Activity;
-import android.content.Context;
-
-import com.zeddic.common.opengl.TextureLibrary;
-import com.zeddic.common.util.ResourceLoader;
 import com.zeddic.war.effects.Effects;
 import com.zeddic.war.level.Level;
 
 public class GameState {
 
   public static Effects effects = null;
-  public static Context context = null;
-  public static Activity activity;
   public static Stockpiles stockpiles = null;
+  public static WarWorld world = null;
   public static Level level = null;
-  public static TextureLibrary textures = null;
   public static Camera camera;
   
   private static boolean loaded = false;
   private static int loadCount = 0;
   
-  public static void setup(Activity activity) {
+  public static void setup() {
     
-    GameState.activity = activity;
-    GameState.context = activity;
     GameState.camera = Camera.INSTANCE;
     
     loadCount++;
@@ -49,15 +40,11 @@ public class GameState {
       return;
     }
 
-    ResourceLoader.init(context);
-
     loaded = true;
   }
   
   public static void cleanup() {
     
-    activity = null;
-    context = null;
     camera = null;
     
     if (!loaded) {
@@ -70,7 +57,6 @@ public class GameState {
     }
 
     effects = null;
-    context = null;
     loaded = false;
   }
 }
@@ -0,0 +1,375 @@
+package com.zeddic.war;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.platform.JvmPlatform;
+import com.zeddic.common.util.ObjectPoolManager;
+import com.zeddic.common.util.ObjectStockpile;
+import com.zeddic.common.util.Profiler;
+import com.zeddic.common.util.RandomUtil;
+import com.zeddic.war.collision.BroadphaseType;
+import com.zeddic.war.level.FileLevelLoader;
+import com.zeddic.war.level.Level;
+import com.zeddic.war.level.LevelLoader;
+import com.zeddic.war.level.LevelTile;
+import com.zeddic.war.level.MockLevelLoader;
+import com.zeddic.war.level.TileType;
+import com.zeddic.war.replay.BattleLog;
+import com.zeddic.war.replay.BattleReplayer;
+
+/**
+ * Steps a {@link WarWorld} as fast as possible without any OpenGL context or
+ * Android surface. Used to measure and regression test how quickly the
+ * simulation runs on a regular desktop JVM.
+ * 
+ * <p>Usage from the command line:
+ * <code>
+ * HeadlessRunner [--record log] [--focus x,y,radius] [--broadphase type] [--cluster x,y,radius]
+ *     [level file|mock] [ticks] [extra fighters] [seed]
+ * HeadlessRunner --replay log [ticks]
+ * HeadlessRunner --verify [seed]
+ * </code>
+ * 
+ * <p>A recorded run may be replayed to check that the simulation is still
+ * deterministic; the report says whether the replay matched every keyframe.
+ * Replays of battles recorded on a device look for the level under the
+ * assets directory. If no tick count is given, a replay runs for as long as
+ * the recorded battle.
+ * 
+ * <p>Verifying runs the collision checks instead of a battle, comparing the
+ * collision system's searches, pushes and proximity queries against brute
+ * force on random levels and shapes. It exits with an error if any of them
+ * got a case wrong. The checks live under the tests folder so they are never
+ * built into the app, and that folder has to be on the classpath to use it.
+ * 
+ * <p>A focus stands in for the camera. Ships far from it are updated less
+ * often, as they would be on a device looking at that part of the level.
+ * 
+ * <p>The broadphase option overrides the one the level asks for, such as
+ * grid or sort_and_sweep, to compare how each copes with the same battle.
+ * A run recorded this way will not replay the same, as the replay uses the
+ * level's own choice. Fighters are spawned anywhere in the level unless a
+ * cluster is given, in which case they all start within it.
+ * 
+ * <p>The simulation runs on the default {@link JvmPlatform} and needs no
+ * Android classes. Ships still hold sprites for drawing, so the OpenGL ES
+ * interfaces (javax.microedition.khronos) and the generated R class must be
+ * on the class path, though nothing is ever drawn.
+ * 
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class HeadlessRunner {
+
+  private static final String MOCK_LEVEL = "mock";
+  private static final String CHECKS = "com.zeddic.war.collision.CollisionChecks";
+  private static final int DEFAULT_TICKS = 10000;
+  private static final long DEFAULT_TICK_LENGTH = 20;
+  private static final long NANOS_PER_SECOND = 1000000000;
+  
+  private final WarWorld world;
+  private BattleReplayer replayer;
+  private long tickLength = DEFAULT_TICK_LENGTH;
+  private long ticks;
+  private long elapsedNanos;
+  
+  public HeadlessRunner(Level level) {
+    world = new WarWorld();
+    world.load(level);
+  }
+  
+  /**
+   * Creates a runner that plays back a recorded battle, loading its level
+   * with the given loader.
+   */
+  public HeadlessRunner(BattleLog log, LevelLoader loader) {
+    world = new WarWorld();
+    replayer = new BattleReplayer(log, loader, world);
+    replayer.restart();
+    tickLength = log.tickLength;
+  }
+  
+  public WarWorld getWorld() {
+    return world;
+  }
+  
+  /** Sets how many milliseconds of game time pass in a single tick. */
+  public void setTickLength(long tickLength) {
+    this.tickLength = tickLength;
+  }
+  
+  /**
+   * Spawns fighters at random empty tiles across the level. Returns the
+   * number actually spawned, which may be less if the supply runs out.
+   */
+  public int spawnFighters(int count) {
+    Level level = GameState.level;
+    int spawned = 0;
+    int attempts = 0;
+    while (spawned < count && attempts < count * 100) {
+      attempts++;
+      int row = RandomUtil.nextInt(level.getTileRows());
+      int col = RandomUtil.nextInt(level.getTileCols());
+      LevelTile tile = level.getTile(row, col);
+      if (tile == null || tile.type != TileType.EMPTY) {
+        continue;
+      }
+      
+      float x = (col + 0.5f) * Level.TILE_SIZE;
+      float y = (row + 0.5f) * Level.TILE_SIZE;
+      if (world.spawnFighter(x, y) == null) {
+        break;
+      }
+      spawned++;
+    }
+    return spawned;
+  }
+  
+  /**
+   * Spawns fighters at random empty tiles within the given radius of a
+   * point. Returns the number actually spawned, which may be less if the
+   * supply runs out or there is no room.
+   */
+  public int spawnFighters(int count, float x, float y, float radius) {
+    Level level = GameState.level;
+    int minRow = Math.max(0, (int) ((y - radius) / Level.TILE_SIZE));
+    int maxRow = Math.min(level.getTileRows() - 1, (int) ((y + radius) / Level.TILE_SIZE));
+    int minCol = Math.max(0, (int) ((x - radius) / Level.TILE_SIZE));
+    int maxCol = Math.min(level.getTileCols() - 1, (int) ((x + radius) / Level.TILE_SIZE));
+    
+    int spawned = 0;
+    int attempts = 0;
+    while (spawned < count && attempts < count * 100) {
+      attempts++;
+      int row = minRow + RandomUtil.nextInt(maxRow - minRow + 1);
+      int col = minCol + RandomUtil.nextInt(maxCol - minCol + 1);
+      LevelTile tile = level.getTile(row, col);
+      if (tile == null || tile.type != TileType.EMPTY) {
+        continue;
+      }
+      
+      float spawnX = (col + 0.5f) * Level.TILE_SIZE;
+      float spawnY = (row + 0.5f) * Level.TILE_SIZE;
+      float dX = spawnX - x;
+      float dY = spawnY - y;
+      if (dX * dX + dY * dY > radius * radius) {
+        continue;
+      }
+      if (world.spawnFighter(spawnX, spawnY) == null) {
+        break;
+      }
+      spawned++;
+    }
+    return spawned;
+  }
+  
+  /**
+   * Starts recording the run so far to a new battle log. The given seed
+   * should be the one the random generator was seeded with before the
+   * runner was created.
+   */
+  public BattleLog startRecording(String levelId, long seed) {
+    BattleLog log = new BattleLog(levelId, seed, tickLength);
+    world.startRecording(log);
+    return log;
+  }
+  
+  /**
+   * Runs the given number of ticks back to back as fast as possible.
+   */
+  public void run(int count) {
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      if (replayer != null) {
+        replayer.step();
+      } else {
+        world.update(tickLength);
+      }
+    }
+    elapsedNanos += System.nanoTime() - start;
+    ticks += count;
+  }
+  
+  /** Returns the total number of ticks run so far. */
+  public long getTicks() {
+    return ticks;
+  }
+  
+  /** Returns the average number of ticks run per second of real time. */
+  public double getTicksPerSecond() {
+    return elapsedNanos == 0 ? 0 : (double) ticks * NANOS_PER_SECOND / elapsedNanos;
+  }
+  
+  /** Returns the number of active ships and bullets. */
+  public int getEntityCount() {
+    return GameState.stockpiles.ships.getActiveCount()
+        + GameState.stockpiles.bullets.getActiveCount();
+  }
+  
+  /**
+   * Returns a human readable summary of the run so far.
+   */
+  public String report() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("Ticks: %d (%d ms each)\n", ticks, tickLength));
+    builder.append(String.format("Game time: %.1f s\n", ticks * tickLength / 1000.0));
+    builder.append(String.format("Real time: %.3f s\n", (double) elapsedNanos / NANOS_PER_SECOND));
+    builder.append(String.format("Ticks per second: %.1f\n", getTicksPerSecond()));
+    builder.append(String.format("Active entities: %d\n", getEntityCount()));
+    builder.append(String.format("Broadphase: %s\n", GameState.level.getBroadphase()));
+    if (replayer != null) {
+      long diverged = replayer.getDivergedTick();
+      builder.append(diverged == -1
+          ? "Replay: matched all keyframes\n"
+          : String.format("Replay: diverged at tick %d\n", diverged));
+    }
+    appendCounts(builder, "ships", GameState.stockpiles.ships);
+    appendCounts(builder, "bullets", GameState.stockpiles.bullets);
+    builder.append(Profiler.get().report());
+    return builder.toString();
+  }
+  
+  private void appendCounts(StringBuilder builder, String name, ObjectStockpile stockpile) {
+    for (Entry<Class<? extends AbstractGameObject>, ObjectPoolManager<? extends AbstractGameObject>> entry
+        : stockpile.supply.entrySet()) {
+      ObjectPoolManager<? extends AbstractGameObject> pool = entry.getValue();
+      builder.append(String.format("  %s/%s: %d of %d (%d asleep)\n",
+          name,
+          entry.getKey().getSimpleName(),
+          pool.getActiveCount(),
+          pool.getPoolSize(),
+          pool.getSleepingCount()));
+    }
+  }
+  
+  /**
+   * Runs the collision checks, which are only compiled when the tests folder
+   * is, so they have to be found by name rather than linked against.
+   */
+  private static void verify(String[] args) throws Exception {
+    Class<?> checks;
+    try {
+      checks = Class.forName(CHECKS);
+    } catch (ClassNotFoundException e) {
+      System.err.println("--verify needs the tests folder on the classpath");
+      System.exit(1);
+      return;
+    }
+    checks.getMethod("main", String[].class).invoke(null, (Object) args);
+  }
+  
+  public static void main(String[] args) throws Exception {
+    String recordFile = null;
+    String replayFile = null;
+    String focus = null;
+    String broadphase = null;
+    String cluster = null;
+    boolean verify = false;
+    List<String> values = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--record") && i + 1 < args.length) {
+        recordFile = args[++i];
+      } else if (args[i].equals("--replay") && i + 1 < args.length) {
+        replayFile = args[++i];
+      } else if (args[i].equals("--focus") && i + 1 < args.length) {
+        focus = args[++i];
+      } else if (args[i].equals("--broadphase") && i + 1 < args.length) {
+        broadphase = args[++i];
+      } else if (args[i].equals("--cluster") && i + 1 < args.length) {
+        cluster = args[++i];
+      } else if (args[i].equals("--verify")) {
+        verify = true;
+      } else {
+        values.add(args[i]);
+      }
+    }
+    
+    if (verify) {
+      verify(values.toArray(new String[values.size()]));
+      return;
+    }
+    
+    if (replayFile != null) {
+      BattleLog log = BattleLog.read(new FileInputStream(replayFile));
+      HeadlessRunner runner = new HeadlessRunner(log, new DesktopLevelLoader());
+      runner.run(values.size() > 0 ? Integer.parseInt(values.get(0)) : (int) log.getLength());
+      System.out.print(runner.report());
+      return;
+    }
+    
+    String levelFile = values.size() > 0 ? values.get(0) : MOCK_LEVEL;
+    int ticks = values.size() > 1 ? Integer.parseInt(values.get(1)) : DEFAULT_TICKS;
+    int fighters = values.size() > 2 ? Integer.parseInt(values.get(2)) : 0;
+    long seed = values.size() > 3 ? Long.parseLong(values.get(3)) : System.currentTimeMillis();
+    RandomUtil.setSeed(seed);
+    
+    Level level = new DesktopLevelLoader().load(levelFile);
+    if (broadphase != null) {
+      level.setBroadphase(BroadphaseType.valueOf(broadphase.toUpperCase()));
+    }
+    
+    HeadlessRunner runner = new HeadlessRunner(level);
+    BattleLog log = recordFile != null ? runner.startRecording(levelFile, seed) : null;
+    if (focus != null) {
+      String[] point = focus.split(",");
+      runner.getWorld().setFocus(
+          Float.parseFloat(point[0]),
+          Float.parseFloat(point[1]),
+          Float.parseFloat(point[2]));
+    }
+    if (cluster != null) {
+      String[] circle = cluster.split(",");
+      runner.spawnFighters(fighters,
+          Float.parseFloat(circle[0]),
+          Float.parseFloat(circle[1]),
+          Float.parseFloat(circle[2]));
+    } else {
+      runner.spawnFighters(fighters);
+    }
+    runner.run(ticks);
+    
+    if (log != null) {
+      OutputStream out = new FileOutputStream(recordFile);
+      try {
+        log.write(out);
+      } finally {
+        out.close();
+      }
+    }
+    
+    System.out.print(runner.report());
+  }
+  
+  /**
+   * Loads levels from the regular file system. Paths that don't exist are
+   * loaded as assets instead, which is how levels named in device recordings
+   * are found.
+   */
+  private static class DesktopLevelLoader implements LevelLoader {
+    
+    @Override
+    public Level load(String file) {
+      if (file.equals(MOCK_LEVEL)) {
+        return new MockLevelLoader().load(file);
+      }
+      
+      File levelFile = new File(file);
+      if (!levelFile.exists()) {
+        return new FileLevelLoader().load(file);
+      }
+      
+      try {
+        return new FileLevelLoader().load(new FileInputStream(levelFile));
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to load level " + file, e);
+      }
+    }
+  }
+}
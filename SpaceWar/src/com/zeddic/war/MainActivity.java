@@ -1,14 +1,27 @@
 package com.zeddic.war;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import android.app.Activity;
 import android.content.res.Configuration;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.Window;
 
 import com.zeddic.common.opengl.GameGLSurfaceView;
+import com.zeddic.common.platform.AndroidPlatform;
+import com.zeddic.common.platform.Log;
+import com.zeddic.common.platform.Platform;
+import com.zeddic.common.util.ResourceLoader;
+import com.zeddic.war.replay.BattleLog;
 
 public class MainActivity extends Activity {
+  
+  /** Intent flag to replay the last recorded battle rather than start a new one. */
+  public static final String EXTRA_REPLAY = "com.zeddic.war.REPLAY";
+  
+  private static final String LAST_BATTLE_FILE = "last_battle.log";
+  
   private WarGame game;
   private GameGLSurfaceView glView;
   
@@ -17,9 +30,13 @@ public class MainActivity extends Activity {
   public void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     
-    GameState.setup(this);
+    // Set the platform first so that any textures created while setting up
+    // are loaded onto the GL surface.
+    Platform.set(new AndroidPlatform(this));
+    ResourceLoader.init(this);
+    GameState.setup();
     
-    game = new WarGame();
+    game = new WarGame(getIntent().getBooleanExtra(EXTRA_REPLAY, false) ? loadLastBattle() : null);
     glView = new GameGLSurfaceView(this, game);
     
 
@@ -29,21 +46,52 @@ public class MainActivity extends Activity {
 
   @Override
   protected void onResume() {
-    // TODO(baileys): Get pause event to the game.
     super.onResume();
     glView.onResume();
+    game.resume();
   }
 
   @Override
   protected void onPause() {
-    // TODO(baileys): Get pause event to the game.
+    game.pause();
+    saveLastBattle();
     super.onPause();
     glView.onPause();
   }
   
+  /** Saves the battle played so far so it may be replayed later. */
+  private void saveLastBattle() {
+    BattleLog log = game.getRecording();
+    if (log == null) {
+      return;
+    }
+    
+    try {
+      OutputStream out = openFileOutput(LAST_BATTLE_FILE, MODE_PRIVATE);
+      try {
+        log.write(out);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      Log.e(MainActivity.class.getName(), "Unable to save battle log: " + e);
+    }
+  }
+  
+  /** Loads the last saved battle, or returns null if there isn't one. */
+  private BattleLog loadLastBattle() {
+    try {
+      return BattleLog.read(openFileInput(LAST_BATTLE_FILE));
+    } catch (IOException e) {
+      Log.e(MainActivity.class.getName(), "Unable to load battle log: " + e);
+      return null;
+    }
+  }
+  
   @Override
   public void onDestroy() {
     Log.d(MainActivity.class.getName(), "Destroying Game Activity");
+    game.shutdown();
     GameState.cleanup();
     super.onDestroy();
   }
@@ -1,8 +1,7 @@
 package com.zeddic.war;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.util.ObjectStockpile;
 import com.zeddic.war.guns.Bullet;
 import com.zeddic.war.ships.FighterShip;
@@ -31,9 +30,9 @@ public class Stockpiles extends AbstractGameObject {
   }
   
   @Override
-  public void draw(GL10 gl) {
-    bullets.draw(gl);
-    ships.draw(gl);
+  public void snapshot(RenderSnapshot snapshot) {
+    bullets.snapshot(snapshot);
+    ships.snapshot(snapshot);
   }
   
   @Override
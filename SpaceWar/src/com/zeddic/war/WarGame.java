@@ -3,50 +3,81 @@ package com.zeddic.war;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import android.view.MotionEvent;
-
 import com.zeddic.common.opengl.AbstractGame;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Screen;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.opengl.TextureLibrary;
-import com.zeddic.war.collision.CollisionSystem;
-import com.zeddic.war.effects.Effects;
+import com.zeddic.common.platform.TouchEvent;
+import com.zeddic.common.util.Profiler;
+import com.zeddic.common.util.Profiler.Scope;
+import com.zeddic.common.util.RandomUtil;
+import com.zeddic.common.util.ResourceLoader;
 import com.zeddic.war.level.FileLevelLoader;
-import com.zeddic.war.ships.FighterShip;
+import com.zeddic.war.replay.BattleLog;
+import com.zeddic.war.replay.BattleReplayer;
 import com.zeddic.war.ui.GameHud;
 
 /**
  * The main entry point for the game. Initializes game objects,
  * sets up OpenGL, and is the root of the game tree.
  *
+ * <p>Every battle played is recorded to a {@link BattleLog}. A game created
+ * with a log plays that battle back instead of taking commands; touches only
+ * move the camera or change the playback speed.
+ *
  * @author scott@zeddic.com (Scott Bailey)
  */
 public class WarGame extends AbstractGame {
 
-  private BattleCommandManager commandManager;
+  private static final Scope UPDATE_CAMERA = Profiler.get().scope("update.camera");
+  private static final Scope UPDATE_HUD = Profiler.get().scope("update.hud");
+  private static final Scope DRAW_LEVEL = Profiler.get().scope("draw.level");
+  private static final Scope DRAW_WORLD = Profiler.get().scope("draw.world");
+  private static final Scope DRAW_HUD = Profiler.get().scope("draw.hud");
+
+  private static final String LEVEL = "levels/1.txt";
+
+  private WarWorld world;
   private GameHud hud;
+  private final BattleLog replay;
+  private BattleReplayer replayer;
   
-  public WarGame() { }
+  public WarGame() {
+    this(null);
+  }
+  
+  /**
+   * Creates a game that plays back the given battle, or a new battle if the
+   * log is null.
+   */
+  public WarGame(BattleLog replay) {
+    this.replay = replay;
+    setThreadedSimulation(true);
+    if (replay != null) {
+      setTickLength(replay.tickLength);
+    }
+  }
 
   @Override
   public void onInitialize() {
-    GameState.level = new FileLevelLoader().load("levels/1.txt");
-    CollisionSystem.get().initializeForLevel(GameState.level);
-    commandManager = new BattleCommandManager();
+    world = new WarWorld();
     
-    hud = new GameHud();
-
-    // Create the enemies and reusable game objects. 
-    GameState.stockpiles = new Stockpiles();
-    GameState.stockpiles.populate();
+    if (replay != null) {
+      replayer = new BattleReplayer(replay, new FileLevelLoader(), world);
+      replayer.restart();
+    } else {
+      long seed = System.currentTimeMillis();
+      RandomUtil.setSeed(seed);
+      world.load(new FileLevelLoader().load(LEVEL));
+      world.startRecording(new BattleLog(LEVEL, seed, getTickLength()));
+    }
+    
+    hud = new GameHud(this);
+    hud.setCommandsEnabled(replayer == null);
     GameState.camera.reset();
 
-    FighterShip ship = GameState.stockpiles.ships.take(FighterShip.class);
-    ship.x = 150;
-    ship.y = 50;
-    ship.enable();
-
-    /*ship = GameState.stockpiles.ships.take(FighterShip.class);
+    /*FighterShip ship = GameState.stockpiles.ships.take(FighterShip.class);
     ship.x = 350;
     ship.y = 350;
     ship.enable();*/
@@ -57,7 +88,7 @@ public class WarGame extends AbstractGame {
 
     // Build any textures registered with the texture library.
     // Note: whenever the surface is recreated all prior textures are lost.
-    TextureLibrary.get().init(gl, GameState.context);
+    TextureLibrary.get().init(gl, ResourceLoader.c);
     TextureLibrary.get().reload();
 
     // Enable texture support.
@@ -107,45 +138,90 @@ public class WarGame extends AbstractGame {
   
   @Override
   public void update(long time) {
-    commandManager.update(time);
-    GameState.stockpiles.update(time);
-    GameState.level.update(time);
-
-    Effects.get().update(time);
+    UPDATE_CAMERA.begin();
+    GameState.camera.update(time);
+    UPDATE_CAMERA.end();
+    
+    if (replayer != null) {
+      replayer.step();
+    } else {
+      updateFocus();
+      world.update(time);
+    }
     
+    UPDATE_HUD.begin();
     hud.update(time);
+    UPDATE_HUD.end();
+  }
+  
+  /**
+   * Points the world's focus at whatever the camera is showing so that
+   * ships out of view may be updated less often.
+   */
+  private void updateFocus() {
+    Camera camera = GameState.camera;
+    float width = camera.convertToWorld(Screen.width);
+    float height = camera.convertToWorld(Screen.height);
+    world.setFocus(
+        -camera.x + width / 2,
+        -camera.y + height / 2,
+        (float) Math.sqrt(width * width + height * height) / 2);
+  }
+  
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
+    GameState.camera.snapshot(snapshot);
+    world.snapshot(snapshot);
+    
+    snapshot.beginOverlay();
+    hud.snapshot(snapshot);
   }
 
   @Override
-  public void draw(GL10 gl) {
+  public void draw(GL10 gl, RenderSnapshot snapshot) {
     // Setup the Model View Matrix.
     gl.glClear(GL10.GL_COLOR_BUFFER_BIT | GL10.GL_DEPTH_BUFFER_BIT);  
     gl.glMatrixMode(GL10.GL_MODELVIEW);
     gl.glLoadIdentity();
 
     // Apply the camera.
-    GameState.camera.apply(gl);
+    snapshot.beginView(gl);
     
-    // Draw all game objects.
+    // Draw the level, which never changes, then all game objects.
+    DRAW_LEVEL.begin();
     GameState.level.draw(gl);
-    GameState.stockpiles.draw(gl);
-    Effects.get().draw(gl);
-    commandManager.draw(gl);
+    DRAW_LEVEL.end();
+    
+    DRAW_WORLD.begin();
+    snapshot.drawWorld(gl);
+    DRAW_WORLD.end();
     
     // Pop any camera transformations.
-    GameState.camera.end(gl);
+    snapshot.endView(gl);
     
     // Any user interface elements, such as scores or a menu may be drawn here.
+    DRAW_HUD.begin();
     hud.draw(gl);
+    snapshot.drawOverlay(gl);
+    DRAW_HUD.end();
+  }
+
+  /** Returns the log of the battle being played, or null while replaying. */
+  public BattleLog getRecording() {
+    return world == null ? null : world.getRecording();
+  }
+  
+  /** Returns the replay being played back, or null if not replaying. */
+  public BattleReplayer getReplayer() {
+    return replayer;
   }
 
   @Override
-  public void onTouchEvent(MotionEvent e) {
-    
+  public void onTouchEvent(TouchEvent e) {
     boolean handled = hud.onTouch(e);
     
-    if (!handled) {
-      handled = commandManager.onTouch(e);
+    if (!handled && replayer == null) {
+      handled = world.getCommandManager().onTouch(e);
     }
     
     if (!handled) {
@@ -0,0 +1,275 @@
+package com.zeddic.war;
+
+import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.Entity;
+import com.zeddic.common.opengl.RenderSnapshot;
+import com.zeddic.common.util.GameClock;
+import com.zeddic.common.util.ObjectPoolManager;
+import com.zeddic.common.util.ObjectStockpile;
+import com.zeddic.common.util.Profiler;
+import com.zeddic.common.util.Profiler.Scope;
+import com.zeddic.common.util.UpdateTiers;
+import com.zeddic.war.collision.CollisionSystem;
+import com.zeddic.war.effects.Effects;
+import com.zeddic.war.level.Level;
+import com.zeddic.war.replay.BattleLog;
+import com.zeddic.war.replay.BattleLog.Command;
+import com.zeddic.war.replay.BattleLog.CommandType;
+import com.zeddic.war.ships.FighterShip;
+import com.zeddic.war.ships.Target;
+
+/**
+ * The simulated part of the game: the level, its ships and bullets, effects
+ * and any outstanding player commands. Everything here may be updated without
+ * an OpenGL context or an Android surface, which lets the same world be
+ * driven either by {@link WarGame} or by the {@link HeadlessRunner}.
+ * 
+ * <p>Anything in the world that changes while playing is drawn by recording it
+ * into a {@link RenderSnapshot}. The level itself never changes once loaded
+ * and is drawn directly by the renderer.
+ *
+ * <p>Player commands should always be given through the world rather than
+ * applied to ships directly. Given the same seed, the same commands on the
+ * same ticks always produce the same battle, so a world that is recording
+ * logs each command to a {@link BattleLog} that can later be replayed.
+ *
+ * <p>Ships far from the area the player is watching are updated less often,
+ * as set by {@link #setFocus}. The focus counts as a command so that replays
+ * update ships on exactly the same ticks.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class WarWorld extends AbstractGameObject {
+
+  private static final Scope UPDATE_COMMANDS = Profiler.get().scope("update.commands");
+  private static final Scope UPDATE_STOCKPILES = Profiler.get().scope("update.stockpiles");
+  private static final Scope UPDATE_LEVEL = Profiler.get().scope("update.level");
+  private static final Scope UPDATE_EFFECTS = Profiler.get().scope("update.effects");
+  private static final Scope SNAPSHOT_WORLD = Profiler.get().scope("snapshot.world");
+  
+  private BattleCommandManager commandManager;
+  private BattleLog recording;
+  private long tick;
+  private final UpdateTiers tiers = new UpdateTiers();
+  private int focusX;
+  private int focusY;
+  private int focusRadius = -1;
+  
+  /**
+   * Sets up the world to play the given level. Any prior world state held
+   * in {@link GameState} is replaced.
+   */
+  public void load(Level level) {
+    GameClock.reset();
+    tick = 0;
+    recording = null;
+    
+    GameState.world = this;
+    GameState.level = level;
+    CollisionSystem.get().initializeForLevel(level);
+    commandManager = new BattleCommandManager();
+    
+    // Create the enemies and reusable game objects.
+    GameState.stockpiles = new Stockpiles();
+    GameState.stockpiles.populate();
+    tiers.reset();
+    focusRadius = -1;
+    GameState.stockpiles.ships.setUpdateTiers(tiers);
+    Effects.get().reset();
+
+    spawnFighter(150, 50);
+  }
+  
+  /**
+   * Starts logging every command given to the given log. Should be called
+   * right after the world is loaded and the random seed the log was created
+   * with has been set.
+   */
+  public void startRecording(BattleLog log) {
+    recording = log;
+  }
+  
+  /** Returns the log being recorded to, or null if not recording. */
+  public BattleLog getRecording() {
+    return recording;
+  }
+  
+  /** Returns the number of ticks simulated since the world was loaded. */
+  public long getTick() {
+    return tick;
+  }
+  
+  /**
+   * Places a single fighter at the given world location. Returns null if
+   * the fighter supply has run out.
+   */
+  public FighterShip spawnFighter(float x, float y) {
+    record(CommandType.SPAWN, -1, x, y);
+    
+    FighterShip ship = GameState.stockpiles.ships.take(FighterShip.class);
+    if (ship == null) {
+      return null;
+    }
+    ship.x = x;
+    ship.y = y;
+    ship.enable();
+    return ship;
+  }
+  
+  /**
+   * Orders a fighter to move to the given world location.
+   */
+  public void moveShip(FighterShip ship, float x, float y) {
+    int index = GameState.stockpiles.ships.getSupply(FighterShip.class).indexOf(ship);
+    record(CommandType.MOVE, index, x, y);
+    commandManager.moveShip(ship, x, y);
+  }
+  
+  /**
+   * Drags an existing target to the given world location.
+   */
+  public void moveTarget(Target target, float x, float y) {
+    record(CommandType.DRAG, commandManager.indexOf(target), x, y);
+    commandManager.moveTarget(target, x, y);
+  }
+  
+  /**
+   * Sets the area the player is watching. Ships within it are updated every
+   * tick while distant ones are updated less often. The area is rounded to
+   * whole tiles, so small camera moves don't change anything.
+   */
+  public void setFocus(float x, float y, float radius) {
+    int tileX = Math.round(x / Level.TILE_SIZE) * Level.TILE_SIZE;
+    int tileY = Math.round(y / Level.TILE_SIZE) * Level.TILE_SIZE;
+    int tileRadius = Math.round(radius / Level.TILE_SIZE) * Level.TILE_SIZE;
+    if (tileX == focusX && tileY == focusY && tileRadius == focusRadius) {
+      return;
+    }
+    
+    record(CommandType.VIEW, -1, tileX, tileY, tileRadius);
+    focusX = tileX;
+    focusY = tileY;
+    focusRadius = tileRadius;
+    tiers.setFocus(tileX, tileY, tileRadius);
+  }
+  
+  /**
+   * Returns the tiers used to update distant ships less often, so their
+   * tolerance may be tuned.
+   */
+  public UpdateTiers getUpdateTiers() {
+    return tiers;
+  }
+  
+  /**
+   * Gives a command read back from a battle log.
+   */
+  public void apply(Command command) {
+    switch (command.type) {
+      case SPAWN:
+        spawnFighter(command.x, command.y);
+        break;
+      case MOVE:
+        moveShip(
+            GameState.stockpiles.ships.getSupply(FighterShip.class).get(command.index),
+            command.x,
+            command.y);
+        break;
+      case DRAG:
+        // Targets are dropped once reached, and a drag that outlived its
+        // target changed nothing.
+        if (command.index >= 0) {
+          moveTarget(commandManager.getTarget(command.index), command.x, command.y);
+        }
+        break;
+      case VIEW:
+        setFocus(command.x, command.y, command.radius);
+        break;
+    }
+  }
+  
+  private void record(CommandType type, int index, float x, float y) {
+    record(type, index, x, y, 0);
+  }
+  
+  private void record(CommandType type, int index, float x, float y, float radius) {
+    if (recording != null) {
+      recording.addCommand(tick, type, index, x, y, radius);
+    }
+  }
+  
+  /**
+   * Returns a hash of the position and motion of every active ship and
+   * bullet along with the current time. Two worlds with the same checksum are
+   * almost certainly in the same state. Effects are purely visual and are
+   * left out.
+   */
+  public int checksum() {
+    int hash = (int) (tick ^ (tick >>> 32));
+    hash = 31 * hash + (int) GameClock.now();
+    hash = checksum(hash, GameState.stockpiles.ships);
+    hash = checksum(hash, GameState.stockpiles.bullets);
+    return hash;
+  }
+  
+  private int checksum(int hash, ObjectStockpile stockpile) {
+    for (ObjectPoolManager<? extends AbstractGameObject> pool : stockpile.supply.values()) {
+      for (int i = 0; i < pool.getPoolSize(); i++) {
+        AbstractGameObject object = pool.get(i);
+        if (!object.enabled || !(object instanceof Entity)) {
+          continue;
+        }
+        
+        Entity entity = (Entity) object;
+        hash = 31 * hash + i;
+        hash = 31 * hash + Float.floatToIntBits(entity.x);
+        hash = 31 * hash + Float.floatToIntBits(entity.y);
+        hash = 31 * hash + Float.floatToIntBits(entity.angle);
+        hash = 31 * hash + Float.floatToIntBits(entity.velocity.x);
+        hash = 31 * hash + Float.floatToIntBits(entity.velocity.y);
+      }
+    }
+    return hash;
+  }
+  
+  public BattleCommandManager getCommandManager() {
+    return commandManager;
+  }
+  
+  @Override
+  public void update(long time) {
+    GameClock.advance(time);
+    
+    UPDATE_COMMANDS.begin();
+    commandManager.update(time);
+    UPDATE_COMMANDS.end();
+    
+    UPDATE_STOCKPILES.begin();
+    GameState.stockpiles.update(time);
+    UPDATE_STOCKPILES.end();
+    
+    UPDATE_LEVEL.begin();
+    GameState.level.update(time);
+    UPDATE_LEVEL.end();
+
+    UPDATE_EFFECTS.begin();
+    Effects.get().update(time);
+    UPDATE_EFFECTS.end();
+    
+    CollisionSystem.get().update(time);
+    tick++;
+    tiers.advance();
+    if (recording != null && tick % recording.keyframeInterval == 0) {
+      recording.addKeyframe(tick, checksum());
+    }
+  }
+  
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
+    SNAPSHOT_WORLD.begin();
+    GameState.stockpiles.snapshot(snapshot);
+    Effects.get().snapshot(snapshot);
+    commandManager.snapshot(snapshot);
+    SNAPSHOT_WORLD.end();
+  }
+}
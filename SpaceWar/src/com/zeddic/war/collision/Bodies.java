@@ -0,0 +1,123 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+
+/**
+ * A broadphase's own copy of where each entity it tracks is, how big it is
+ * and which collision layers it sits in, kept in parallel arrays indexed by
+ * a body id rather than spread across entity objects.
+ *
+ * <p>The hot loops of the collision system check one entity against dozens
+ * of nearby ones. Reading the others' positions straight out of these
+ * arrays, and only touching an entity object once a pair actually touches,
+ * keeps those loops from chasing a reference per pair.
+ *
+ * <p>A body is synced from its entity whenever the broadphase is told the
+ * entity moved. Ids of removed bodies are reused once the tick they were
+ * removed in has ended, so the arrays stay about as long as the most
+ * entities ever tracked at once. Until then, {@link Contacts} may still
+ * remember pairs by the old id, and a new body taking it over would have
+ * its first hits mistaken for ones already reported.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class Bodies {
+
+  private static final int INITIAL_CAPACITY = 128;
+
+  float[] x = new float[INITIAL_CAPACITY];
+  float[] y = new float[INITIAL_CAPACITY];
+  float[] radius = new float[INITIAL_CAPACITY];
+  
+  /** The {@link CollisionLayers} each body sits in. */
+  int[] categories = new int[INITIAL_CAPACITY];
+  CollideComponent[] components = new CollideComponent[INITIAL_CAPACITY];
+
+  /** One past the highest id handed out so far. */
+  private int size;
+  private int[] free = new int[INITIAL_CAPACITY];
+  private int freeCount;
+  
+  /** Ids freed this tick, held back until {@link #endTick()}. */
+  private int[] released = new int[INITIAL_CAPACITY];
+  private int releasedCount;
+
+  /**
+   * Creates a body for the component's entity, storing its id on the
+   * component.
+   */
+  void add(CollideComponent component) {
+    int id;
+    if (freeCount > 0) {
+      id = free[--freeCount];
+    } else {
+      if (size == x.length) {
+        grow();
+      }
+      id = size++;
+    }
+
+    components[id] = component;
+    component.body = id;
+    sync(component);
+  }
+
+  /** Frees the component's body for reuse once the tick ends. */
+  void remove(CollideComponent component) {
+    int id = component.body;
+    components[id] = null;
+    if (releasedCount == released.length) {
+      int[] newReleased = new int[released.length * 2];
+      System.arraycopy(released, 0, newReleased, 0, releasedCount);
+      released = newReleased;
+    }
+    released[releasedCount++] = id;
+    component.body = -1;
+  }
+  
+  /** Makes the ids of bodies removed this tick available again. */
+  void endTick() {
+    if (freeCount + releasedCount > free.length) {
+      int[] newFree = new int[Math.max(free.length * 2, freeCount + releasedCount)];
+      System.arraycopy(free, 0, newFree, 0, freeCount);
+      free = newFree;
+    }
+    System.arraycopy(released, 0, free, freeCount, releasedCount);
+    freeCount += releasedCount;
+    releasedCount = 0;
+  }
+
+  /** Copies the entity's current position and size into its body. */
+  void sync(CollideComponent component) {
+    int id = component.body;
+    Entity entity = component.entity;
+    x[id] = entity.x;
+    y[id] = entity.y;
+    radius[id] = entity.radius;
+    categories[id] = component.getCategory();
+  }
+
+  /** Returns the entity a body belongs to. */
+  Entity entity(int id) {
+    return components[id].entity;
+  }
+
+  private void grow() {
+    int length = x.length * 2;
+    float[] newX = new float[length];
+    float[] newY = new float[length];
+    float[] newRadius = new float[length];
+    int[] newCategories = new int[length];
+    CollideComponent[] newComponents = new CollideComponent[length];
+    System.arraycopy(x, 0, newX, 0, size);
+    System.arraycopy(y, 0, newY, 0, size);
+    System.arraycopy(radius, 0, newRadius, 0, size);
+    System.arraycopy(categories, 0, newCategories, 0, size);
+    System.arraycopy(components, 0, newComponents, 0, size);
+    x = newX;
+    y = newY;
+    radius = newRadius;
+    categories = newCategories;
+    components = newComponents;
+  }
+}
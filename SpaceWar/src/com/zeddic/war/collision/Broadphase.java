@@ -0,0 +1,79 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.SimpleList;
+
+/**
+ * Keeps track of where the entities in the world are so that the
+ * {@link CollisionSystem} can quickly find the few that might touch a given
+ * entity, rather than checking every pair.
+ * 
+ * <p>Different structures suit different levels. An {@link EntityGrid} does
+ * well when entities are spread out over a large level, a
+ * {@link SortAndSweep} copes better with tightly packed battles and a
+ * {@link HierarchicalGrid} with entities of very different sizes. Each
+ * level picks one, see {@link BroadphaseType}.
+ */
+public interface Broadphase {
+
+  /** Starts tracking a component's entity. */
+  void add(CollideComponent component);
+  
+  /** Stops tracking a component's entity. */
+  void remove(CollideComponent component);
+  
+  /** Brings a tracked entity up to date after it moved. */
+  void update(CollideComponent component);
+  
+  /**
+   * Adds every tracked entity overlapping the component's entity, and in a
+   * layer it can hit, to the contacts, leaving them to be resolved by the
+   * caller. The component does not need to be tracked.
+   */
+  void findContacts(CollideComponent component, Contacts contacts);
+  
+  /**
+   * Returns how far through the move (dX, dY) the entity first touches
+   * another entity it can hit, as a fraction from 0 to 1, or 1 if it
+   * touches none.
+   */
+  float sweep(CollideComponent component, float dX, float dY);
+  
+  /**
+   * Reports any entity moving within the given radius of the component's
+   * entity to it, until {@link #unwatch(CollideComponent)} is called. The
+   * area may be rounded up.
+   */
+  void watch(CollideComponent component, float radius);
+  
+  /** Stops reporting entities to a watching component. */
+  void unwatch(CollideComponent component);
+  
+  /**
+   * Places every entity in any of the given {@link CollisionLayers} whose
+   * bounds might be within the given radius of a point into the result. The
+   * result is cleared first, may include entities a little further away,
+   * and may list an entity more than once.
+   */
+  void query(float x, float y, float radius, int layers, SimpleList<Entity> result);
+  
+  /**
+   * Finds the entities nearest a point for a search set up with
+   * {@link Neighbours#reset}, visiting nearby entities before distant ones
+   * and stopping once nothing left could be nearer than what was found.
+   */
+  void nearest(float x, float y, Neighbours result);
+  
+  /**
+   * Records the first entity in any of the given layers that the line from
+   * (x0, y0) to (x1, y1) touches in the hit, if it is nearer than what the
+   * hit already holds.
+   */
+  void raycast(float x0, float y0, float x1, float y1, int layers, RayHit hit);
+  
+  /**
+   * Ends the tick. Bodies of entities removed during it aren't handed to
+   * new entities until then.
+   */
+  void endTick();
+}
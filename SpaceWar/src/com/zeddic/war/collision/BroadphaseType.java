@@ -0,0 +1,27 @@
+package com.zeddic.war.collision;
+
+/**
+ * The kinds of {@link Broadphase} a level may use to track its entities.
+ */
+public enum BroadphaseType {
+
+  /**
+   * A uniform grid of {@link CollisionSystem#SIZE} cells. Cheap to update and
+   * best when entities are spread across the level.
+   */
+  GRID,
+  
+  /**
+   * Several grids of increasing cell size, with each entity in the one that
+   * suits its size. Best when entities of very different sizes share a
+   * level.
+   */
+  HIERARCHICAL_GRID,
+  
+  /**
+   * Entities kept sorted along the x axis. Copes with any number of
+   * entities packed into a small area, but slows down when many share the
+   * same stretch of x.
+   */
+  SORT_AND_SWEEP
+}
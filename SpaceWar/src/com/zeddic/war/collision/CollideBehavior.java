@@ -1,5 +1,11 @@
 package com.zeddic.war.collision;
 
+/**
+ * Whether an object can hit others and whether it can be hit. Which objects
+ * it hits is narrowed down further by its {@link CollisionLayers}. An
+ * object that can't be hit is treated as sitting in no layers, and one that
+ * can't hit anything as hitting none.
+ */
 public enum CollideBehavior {
 
   /**
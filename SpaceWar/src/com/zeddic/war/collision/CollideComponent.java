@@ -1,18 +1,56 @@
 package com.zeddic.war.collision;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.GameObject;
+import com.zeddic.common.util.Bounds;
+import com.zeddic.common.util.Shape;
 import com.zeddic.common.util.SimpleList;
 
 public class CollideComponent implements GameObject {
 
   private final CollisionSystem collisionSystem;
   public final Entity entity;
-  public SimpleList<EntityCell> currentCells = SimpleList.create(EntityCell.class, 1);
+  public SimpleList<EntityCell> watchedCells = SimpleList.create(EntityCell.class, 16);
   private boolean registered;
+  
+  /** The broadphase currently tracking the entity, if any. */
+  Broadphase broadphase;
+  
+  /** The entity's id in the broadphase's {@link Bodies}, or -1. */
+  int body = -1;
+  
+  /** 
+   * The range of grid cells the entity covers. Kept up to date by
+   * {@link EntityGrid}. A {@link HierarchicalGrid} places the entity in a
+   * single cell, in the grid given by gridLevel.
+   */
+  int gridLevel;
+  int minRow;
+  int minCol;
+  int maxRow;
+  int maxCol;
+  
+  /**
+   * Where the entity is stored in each cell it covers, row by row across the
+   * range above. Lets the entity be removed from a cell without a search.
+   */
+  int[] slots = new int[4];
+  
+  /** Spare storage for slots, swapped in whenever the range changes. */
+  int[] spareSlots = new int[4];
+  
+  /** Where the entity is in a {@link SortAndSweep}'s sorted list. */
+  int index;
+  
+  /** How far around the entity a {@link SortAndSweep} watches for other entities. */
+  float watchRadius;
+  
   private CollideBehavior behavior;
+  private int category = CollisionLayers.ALL;
+  private int mask = CollisionLayers.ALL;
+  
+  /** The entity's shape, or null if it is a circle of its radius. */
+  private Bounds bounds;
 
   public CollideComponent(Entity entity, CollideBehavior behavior) {
     this(CollisionSystem.get(), entity, behavior);
@@ -54,6 +92,71 @@ public class CollideComponent implements GameObject {
     return behavior;
   }
   
+  /**
+   * Sets the {@link CollisionLayers} the entity sits in. Only entities whose
+   * mask includes one of them can hit it.
+   */
+  public void setCategory(int category) {
+    if (this.category == category) {
+      return;
+    }
+    
+    // The broadphase keeps its own copy of the category, so re-register in
+    // the same way as when the behavior changes.
+    boolean wasRegistered = registered;
+    unregisterObject();
+    this.category = category;
+    if (wasRegistered) {
+      registerObject();
+    }
+  }
+  
+  /** Sets the {@link CollisionLayers} the entity can hit. */
+  public void setMask(int mask) {
+    this.mask = mask;
+  }
+  
+  /**
+   * Gives the entity a shape other than a circle, centered on the entity
+   * and turned and scaled along with it. Passing null makes it a circle
+   * again. The entity's radius should still cover the whole shape, as that
+   * is what decides which entities are checked against it.
+   */
+  public void setShape(Shape shape) {
+    bounds = shape == null ? null : new Bounds(shape);
+  }
+  
+  /**
+   * Returns the entity's shape as it is now turned and scaled, or null if
+   * it is a circle of its radius. The shape is only transformed again when
+   * the entity's angle or scale has changed.
+   */
+  Shape getShape() {
+    if (bounds == null) {
+      return null;
+    }
+    bounds.transform(entity.angle, entity.scale);
+    return bounds.shape;
+  }
+  
+  /**
+   * Returns the layers the entity sits in, or none if its behavior means
+   * it can't be hit.
+   */
+  public int getCategory() {
+    return behavior == CollideBehavior.HIT_RECEIVE || 
+        behavior == CollideBehavior.RECEIVE_ONLY ? category : 0;
+  }
+  
+  /**
+   * Returns the layers the entity can hit, or none if its behavior means it
+   * can't hit anything.
+   */
+  public int getMask() {
+    return behavior == CollideBehavior.HIT_RECEIVE || 
+        behavior == CollideBehavior.HIT_ONLY ? mask : 0;
+  }
+  
   private void updateRegistration() {
     register(entity.enabled);
   }
@@ -94,6 +197,24 @@ public class CollideComponent implements GameObject {
     registered = false;
   }
 
+  /**
+   * Starts watching all cells within the given radius of the entity for other
+   * entities moving through them. See {@link Entity#sleep(float)}.
+   */
+  public void watch(float radius) {
+    collisionSystem.watch(this, radius);
+  }
+  
+  /** Stops watching any cells. */
+  public void unwatch() {
+    collisionSystem.unwatch(this);
+  }
+
+  /** Returns where in {@link #slots} the given cell's slot is kept. */
+  int slotIndex(int row, int col) {
+    return (row - minRow) * (maxCol - minCol + 1) + (col - minCol);
+  }
+
   @Override
   public void update(long time) {
     updateRegistration();
@@ -109,11 +230,6 @@ public class CollideComponent implements GameObject {
     }
   }
 
-  @Override
-  public void draw(GL10 gl) {
-    // Do nothing.
-  }
-
   @Override
   public void reset() {
     // Do nothing.
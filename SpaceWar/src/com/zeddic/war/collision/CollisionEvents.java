@@ -0,0 +1,105 @@
+package com.zeddic.war.collision;
+
+import java.util.Arrays;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.platform.FloatMath;
+import com.zeddic.common.util.Vector2d;
+
+/**
+ * The collisions found while moving entities, waiting to be reported to
+ * them. Finding and resolving collisions never calls into the game; each
+ * hit is only written down here, and the entities hear about them all once
+ * the checks are finished. Whatever a hit sets off, such as a bullet dying
+ * or an effect being spawned, can't change the grids while they are being
+ * searched.
+ *
+ * <p>Each event is the entity hit, what it hit, which way and how far it
+ * was pushed, and whether it was the one receiving the hit. A hit between
+ * two entities is two events, the hitting side first.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class CollisionEvents {
+
+  private static final int INITIAL_CAPACITY = 32;
+
+  /** The number of events waiting. */
+  int size;
+
+  /** The entity told about each event, and what it hit, or null for a tile. */
+  private Entity[] entities = new Entity[INITIAL_CAPACITY];
+  private Entity[] others = new Entity[INITIAL_CAPACITY];
+
+  /** The direction the entity was pushed, and how far. */
+  private float[] normalX = new float[INITIAL_CAPACITY];
+  private float[] normalY = new float[INITIAL_CAPACITY];
+  private float[] depth = new float[INITIAL_CAPACITY];
+
+  private boolean[] receiving = new boolean[INITIAL_CAPACITY];
+
+  private final Vector2d projection = new Vector2d();
+  private boolean dispatching;
+
+  /**
+   * Adds an event for the entity, given the push that moved it clear of
+   * what it hit.
+   */
+  void add(Entity entity, Entity other, float projectionX, float projectionY, boolean receiving) {
+    if (size == entities.length) {
+      grow();
+    }
+
+    float length = FloatMath.sqrt(projectionX * projectionX + projectionY * projectionY);
+    entities[size] = entity;
+    others[size] = other;
+    normalX[size] = length == 0 ? 0 : projectionX / length;
+    normalY[size] = length == 0 ? 0 : projectionY / length;
+    depth[size] = length;
+    this.receiving[size] = receiving;
+    size++;
+  }
+
+  /**
+   * Tells each entity about its events, in the order they happened, then
+   * forgets them. Once an event disables the entity that caused it, its
+   * later hits aren't reported, the same as if it had stopped moving.
+   *
+   * <p>Events added by the entities as they are told, such as by moving
+   * something else, are reported in the same pass.
+   */
+  void dispatch() {
+    if (dispatching) {
+      return;
+    }
+
+    dispatching = true;
+    boolean report = true;
+    for (int i = 0; i < size; i++) {
+      // The receiving half of a hit goes wherever its hitting half did.
+      if (!receiving[i]) {
+        report = entities[i].enabled;
+      }
+      if (report) {
+        projection.x = normalX[i] * depth[i];
+        projection.y = normalY[i] * depth[i];
+        entities[i].collide(others[i], projection, receiving[i]);
+      }
+    }
+
+    Arrays.fill(entities, 0, size, null);
+    Arrays.fill(others, 0, size, null);
+    size = 0;
+    dispatching = false;
+  }
+
+  private void grow() {
+    int length = entities.length * 2;
+    entities = Arrays.copyOf(entities, length);
+    others = Arrays.copyOf(others, length);
+    normalX = Arrays.copyOf(normalX, length);
+    normalY = Arrays.copyOf(normalY, length);
+    depth = Arrays.copyOf(depth, length);
+    receiving = Arrays.copyOf(receiving, length);
+  }
+}
@@ -0,0 +1,31 @@
+package com.zeddic.war.collision;
+
+/**
+ * The layers an entity may sit in for collisions. Each layer is one bit, so
+ * an entity may be in several and may hit any combination of them.
+ *
+ * <p>An entity's category is the set of layers it sits in, and its mask the
+ * set of layers it can hit. A moving entity is only checked against a
+ * tracked one if its mask shares a bit with the other's category, which is
+ * tested before any distance math. See
+ * {@link CollideComponent#setCategory(int)} and
+ * {@link CollideComponent#setMask(int)}.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public final class CollisionLayers {
+
+  /** The level's tiles and planets. */
+  public static final int SCENERY = 1;
+
+  /** The player's ships. */
+  public static final int FRIENDLY_SHIPS = 1 << 1;
+
+  /** Ships the player has to fight. */
+  public static final int ENEMY_SHIPS = 1 << 2;
+
+  /** Every layer. The default for entities that don't pick their own. */
+  public static final int ALL = -1;
+
+  private CollisionLayers() {}
+}
@@ -10,6 +10,11 @@ import com.zeddic.common.Entity;
  */
 public class CollisionQueryEntity extends Entity {
 
+  public CollisionQueryEntity() {
+    // Hits everything but is never tracked itself.
+    collide.setBehavior(CollideBehavior.HIT_ONLY);
+  }
+
   public void setQuery(float x, float y, float radius) {
     this.x = x;
     this.y = y;
@@ -1,7 +1,6 @@
 package com.zeddic.war.collision;
 
-import javax.microedition.khronos.opengles.GL10;
-
+import com.zeddic.common.Entity;
 import com.zeddic.common.GameObject;
 import com.zeddic.common.util.SimpleList;
 import com.zeddic.war.level.Level;
@@ -9,17 +8,19 @@ import com.zeddic.war.level.Level;
 /**
  * Handles collision detection for the game.
  * 
- * <p>The collision system is made up of two grids. One grid keeps
- * track of the various tiles from the tile map, while a second
- * grid keeps track of all the entities that reside in the world.
+ * <p>The collision system is made up of two parts. A grid keeps
+ * track of the various tiles from the tile map, while a
+ * {@link Broadphase} keeps track of all the entities that reside in the
+ * world. Which broadphase is used is up to the level.
  * 
  * <p>When checking an entity for collisions, a quick query can be
- * be done against the grids to find any potential tiles or
+ * be done against both to find any potential tiles or
  * world objects that the object intersects with. The source
  * object may then have it's x/y projected to avoid the collision.
  * 
  * <p>To register an entity with the collision system, call
- * an entities setBehavior.
+ * an entities setBehavior. Which entities and tiles it then collides with
+ * is narrowed down by its {@link CollisionLayers}.
  * 
  * @author scott@zeddic.com (Scott Bailey)
  */
@@ -27,10 +28,25 @@ public class CollisionSystem implements GameObject {
 
   private static CollisionSystem singleton;
   public static final int SIZE = 128;
-  private EntityGrid entityGrid;
+  
+  /**
+   * How far past the point of impact a moving entity is placed, so that the
+   * regular overlap checks see the contact and resolve it.
+   */
+  private static final float CONTACT_DEPTH = 0.01f;
+  
+  /**
+   * The most contacts a single move will stop at. Whatever is left of the
+   * move after that is dropped rather than made without a sweep.
+   */
+  private static final int MAX_CONTACTS = 4;
+  
+  private Broadphase entities;
   private TileGrid tileGrid;
   private boolean ready;
   private CollisionQueryEntity queryEntity;
+  private final Contacts contacts = new Contacts();
+  private final CollisionEvents events = new CollisionEvents();
 
   SimpleList<TileCell> nearbyCells = SimpleList.create(TileCell.class);
 
@@ -39,62 +55,204 @@ public class CollisionSystem implements GameObject {
   }
 
   public void initializeForLevel(Level level) {
-    entityGrid = new EntityGrid(level, SIZE);
+    entities = createBroadphase(level);
     tileGrid = new TileGrid(level);
+    contacts.endTick();
     ready = true;
   }
   
+  private static Broadphase createBroadphase(Level level) {
+    switch (level.getBroadphase()) {
+      case SORT_AND_SWEEP:
+        return new SortAndSweep();
+      case HIERARCHICAL_GRID:
+        return new HierarchicalGrid(level);
+      default:
+        return new EntityGrid(level, SIZE);
+    }
+  }
+  
   public void register(CollideComponent component) {
-    if (!ready ||
-        component.getBehavior() == CollideBehavior.HIT_ONLY ||
-        component.getBehavior() == CollideBehavior.NONE) {
+    if (!ready || component.getCategory() == 0) {
       return;
     }
     
-    entityGrid.add(component);
+    entities.add(component);
   }
   
   public void unregister(CollideComponent component) {
-    if (!ready ||
-        component.getBehavior() == CollideBehavior.HIT_ONLY ||
-        component.getBehavior() == CollideBehavior.NONE) {
+    if (!ready || component.getCategory() == 0) {
       return;
     }
 
-    entityGrid.remove(component);
+    entities.remove(component);
   }
   
   public void update(CollideComponent component) {
-    if (!ready ||
-        component.getBehavior() == CollideBehavior.HIT_ONLY ||
-        component.getBehavior() == CollideBehavior.NONE) {
+    if (!ready || component.getCategory() == 0) {
       return;
     }
 
-    entityGrid.update(component);
+    entities.update(component);
   }
   
+  /**
+   * Moves an entity, checking for collisions along the way. The whole path
+   * of the move is swept, so an entity stops at the first thing it would
+   * touch no matter how fast it is going or how long the update was. Once
+   * that contact is resolved the entity slides along what it hit with
+   * whatever is left of the move, less the part heading back into it. An
+   * entity that can't be hit itself, such as a bullet, stops
+   * where it first hit something instead, so it is still there when told
+   * about the hit.
+   * 
+   * <p>Nothing hit is told about it until the whole move has been checked
+   * and the entity's place in the broadphase updated. Only then are the
+   * events dispatched, so a hit that kills the entity or spawns an effect
+   * never does so partway through a search.
+   */
   public void move(CollideComponent component, float dX, float dY) {
-    // TODO: perform a scan of objects here cases where dX, dY are
-    // more than 32 in length.
+    int mask = component.getMask();
+    boolean hits = mask != 0;
+    boolean stopsOnHit = component.getCategory() == 0;
+    int firstEvent = events.size;
     
-    component.entity.x += dX;
-    component.entity.y += dY;
+    Entity entity = component.entity;
+    float startX = entity.x;
+    float startY = entity.y;
     
-    CollideBehavior behavior = component.getBehavior();
+    if (!hits) {
+      entity.x += dX;
+      entity.y += dY;
+    }
+
+    for (int i = 0; hits && i < MAX_CONTACTS; i++) {
+      float contact = sweep(component, dX, dY);
+      if (contact < 1) {
+        float distance = (float) Math.sqrt(dX * dX + dY * dY);
+        contact = Math.min(1, contact + CONTACT_DEPTH / distance);
+      }
 
-    if (behavior == CollideBehavior.HIT_ONLY ||
-        behavior == CollideBehavior.HIT_RECEIVE) {
-      tileGrid.collide(component);
-      entityGrid.collide(component);
+      entity.x += dX * contact;
+      entity.y += dY * contact;
+      float contactX = entity.x;
+      float contactY = entity.y;
+      if ((mask & CollisionLayers.SCENERY) != 0) {
+        tileGrid.collide(component, events);
+      }
+      collideEntities(component);
+      
+      if (contact == 1 || (stopsOnHit && events.size > firstEvent)) {
+        break;
+      }
+      dX *= 1 - contact;
+      dY *= 1 - contact;
+
+      // Whatever the entity was pushed out of lies against the push, so
+      // drop the part of the move heading back that way.
+      float pushX = entity.x - contactX;
+      float pushY = entity.y - contactY;
+      float into = dX * pushX + dY * pushY;
+      if (into < 0) {
+        float scale = into / (pushX * pushX + pushY * pushY);
+        dX -= pushX * scale;
+        dY -= pushY * scale;
+      }
+      if (dX == 0 && dY == 0) {
+        break;
+      }
     }
 
-    if (behavior != CollideBehavior.HIT_ONLY &&
-       (dX != 0 || dY != 0)) {
-      entityGrid.update(component);
+    // Compare against where the entity started rather than the requested
+    // move, so entities that were only pushed by a collision are kept in the
+    // right cells too.
+    if (component.getCategory() != 0 &&
+       (entity.x != startX || entity.y != startY)) {
+      entities.update(component);
+    }
+    
+    if (events.size > 0) {
+      events.dispatch();
     }
   }
   
+  /**
+   * Finds every entity the component's entity overlaps, then pushes it clear
+   * of them all at once.
+   */
+  private void collideEntities(CollideComponent component) {
+    contacts.clear();
+    entities.findContacts(component, contacts);
+    contacts.resolve(component, events);
+  }
+  
+  /**
+   * Returns how far through the move (dX, dY) the component's entity first
+   * touches a tile or another entity that it can hit, as a fraction from 0
+   * to 1, or 1 if the path is clear.
+   */
+  public float sweep(CollideComponent component, float dX, float dY) {
+    if (!ready || (dX == 0 && dY == 0)) {
+      return 1;
+    }
+    
+    float first = entities.sweep(component, dX, dY);
+    if ((component.getMask() & CollisionLayers.SCENERY) != 0) {
+      first = Math.min(first, tileGrid.sweep(component, dX, dY));
+    }
+    return first;
+  }
+  
+  /**
+   * Finds the first thing the line from (x0, y0) to (x1, y1) runs into:
+   * either an entity in any of the given layers or, if the layers include
+   * {@link CollisionLayers#SCENERY}, a solid tile. Returns true if it ran
+   * into anything, with the details left in the hit.
+   */
+  public boolean raycast(float x0, float y0, float x1, float y1, int layers, RayHit hit) {
+    hit.clear();
+    if (!ready) {
+      return false;
+    }
+    
+    if ((layers & CollisionLayers.SCENERY) != 0) {
+      hit.fraction = tileGrid.raycast(x0, y0, x1, y1);
+    }
+    entities.raycast(x0, y0, x1, y1, layers, hit);
+    
+    float dX = x1 - x0;
+    float dY = y1 - y0;
+    hit.distance = hit.fraction * (float) Math.sqrt(dX * dX + dY * dY);
+    return hit.isHit();
+  }
+  
+  /**
+   * Returns true if no solid tile blocks the line from (x0, y0) to
+   * (x1, y1). Entities are ignored.
+   */
+  public boolean isLineClear(float x0, float y0, float x1, float y1) {
+    return !ready || tileGrid.raycast(x0, y0, x1, y1) == 1;
+  }
+  
+  /**
+   * Watches the area within the given radius of a component's entity.
+   * Entities moving within it are reported to the watching entity.
+   */
+  public void watch(CollideComponent component, float radius) {
+    if (!ready) {
+      return;
+    }
+    entities.watch(component, radius);
+  }
+  
+  public void unwatch(CollideComponent component) {
+    if (!ready) {
+      component.watchedCells.clear();
+      return;
+    }
+    entities.unwatch(component);
+  }
+  
   /**
    * Returns true if the radius at the given x/y coordinates intersects
    * with anything, including entities or tiles.
@@ -106,28 +264,39 @@ public class CollisionSystem implements GameObject {
     }
 
     queryEntity.setQuery(x, y, radius);
-    return tileGrid.intersectsAnyTile(queryEntity.collide)
-        || entityGrid.collide(queryEntity.collide);
+    if (tileGrid.intersectsAnyTile(queryEntity.collide)) {
+      return true;
+    }
+    
+    contacts.clear();
+    entities.findContacts(queryEntity.collide, contacts);
+    return contacts.size > 0;
   }
 
-  public EntityGrid getEntityGrid() {
-    return entityGrid;
+  public Broadphase getBroadphase() {
+    return entities;
   }
   
   public TileGrid getTileGrid() {
     return tileGrid;
   }
 
+  /**
+   * Ends the tick. Pairs of entities that touch again from here on are
+   * reported to them again.
+   */
   @Override
-  public void update(long time) {}
+  public void update(long time) {
+    contacts.endTick();
+    if (ready) {
+      entities.endTick();
+    }
+  }
 
-  @Override
-  public void draw(GL10 gl) {}
-  
   @Override
   public void reset() {
     ready = false;
-    entityGrid = null;
+    entities = null;
     tileGrid = null;
   }
   
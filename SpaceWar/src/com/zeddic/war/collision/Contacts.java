@@ -0,0 +1,225 @@
+package com.zeddic.war.collision;
+
+import java.util.Arrays;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.platform.FloatMath;
+
+/**
+ * The contacts found for one entity during a collision step: every tracked
+ * entity it overlaps, listed once no matter how many cells the two share,
+ * along with how far it must be pushed to separate them.
+ *
+ * <p>A broadphase only gathers contacts. They are resolved afterwards, in
+ * order of body id, so the outcome doesn't depend on which broadphase found
+ * them or in what order. Resolving only moves the entity; the hits are
+ * reported later through {@link CollisionEvents}.
+ *
+ * <p>The pairs already reported to their entities are remembered until the
+ * end of the tick. Two entities that run into each other from both sides
+ * are still pushed apart each time, but only hear about it once. Pairs are
+ * remembered by body id, which is safe because {@link Bodies} doesn't hand
+ * a removed body's id to a new one until the tick is over.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class Contacts {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_REPORTED = 256;
+
+  /** The number of contacts found. */
+  int size;
+
+  /** The body id of each entity touched, and the entity itself. */
+  int[] bodies = new int[INITIAL_CAPACITY];
+  Entity[] others = new Entity[INITIAL_CAPACITY];
+
+  /** How far the entity must move to be clear of each entity touched. */
+  float[] projectionX = new float[INITIAL_CAPACITY];
+  float[] projectionY = new float[INITIAL_CAPACITY];
+
+  /**
+   * The keys of the pairs reported this tick, in an open addressed hash
+   * table where 0 marks an empty spot. No real pair has a key of 0, since
+   * an entity never touches itself.
+   */
+  private long[] reported = new long[INITIAL_REPORTED];
+  private int reportedCount;
+
+  private final SeparatingAxes shapes = new SeparatingAxes();
+
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * Adds a contact with the given body, unless it was already added.
+   * The offset is from the other body's center to the entity's, and the
+   * minimum distance is the sum of their radii.
+   */
+  void add(int body, Entity other, float offsetX, float offsetY, float minDistance) {
+    for (int i = 0; i < size; i++) {
+      if (bodies[i] == body) {
+        return;
+      }
+    }
+
+    if (size == bodies.length) {
+      grow();
+    }
+
+    bodies[size] = body;
+    others[size] = other;
+    project(size, offsetX, offsetY, minDistance);
+    size++;
+  }
+
+  /** Works out how far the entity must move to be clear of a contact. */
+  private void project(int i, float offsetX, float offsetY, float minDistance) {
+    float distance = FloatMath.sqrt(offsetX * offsetX + offsetY * offsetY);
+    if (distance == 0) {
+      // Exactly on top of each other, so there is no direction to push in.
+      // Pick one rather than dividing by zero.
+      offsetX = 1;
+      distance = 1;
+    }
+    float scale = (minDistance - distance) / distance;
+    projectionX[i] = offsetX * scale;
+    projectionY[i] = offsetY * scale;
+  }
+
+  /**
+   * Pushes the component's entity clear of everything it touches, in order
+   * of body id, adding an event for both sides of any pair not yet reported
+   * this tick.
+   *
+   * <p>Once the entity has been pushed, the contacts after it are checked
+   * again from where it now is. Being pushed clear of one entity often
+   * clears it of the next, and adding up every push would throw it too far.
+   * Where either entity has a shape other than a circle, the shapes
+   * themselves are checked when the contact is reached.
+   */
+  void resolve(CollideComponent component, CollisionEvents events) {
+    sort();
+
+    Entity entity = component.entity;
+    boolean pushed = false;
+    for (int i = 0; i < size; i++) {
+      Entity other = others[i];
+      if (component.getShape() != null || other.collide.getShape() != null) {
+        // The radii only say the shapes might touch.
+        if (!shapes.collide(component, other.collide)) {
+          continue;
+        }
+        projectionX[i] = shapes.projection.x;
+        projectionY[i] = shapes.projection.y;
+      } else if (pushed) {
+        float offsetX = entity.x - other.x;
+        float offsetY = entity.y - other.y;
+        float minDistance = entity.radius + other.radius;
+        if (offsetX * offsetX + offsetY * offsetY >= minDistance * minDistance) {
+          continue;
+        }
+        project(i, offsetX, offsetY, minDistance);
+      }
+
+      if (report(component.body, bodies[i])) {
+        events.add(entity, other, projectionX[i], projectionY[i], false);
+        events.add(other, entity, -projectionX[i], -projectionY[i], true);
+      }
+
+      entity.x += projectionX[i];
+      entity.y += projectionY[i];
+      pushed = true;
+    }
+  }
+
+  /** Forgets which pairs were reported, ready for the next tick. */
+  void endTick() {
+    if (reportedCount > 0) {
+      Arrays.fill(reported, 0);
+      reportedCount = 0;
+    }
+  }
+
+  /**
+   * Returns true if the pair has not been reported yet this tick, and
+   * remembers it. An entity that isn't tracked, such as a bullet, has no
+   * body and so every one of its hits is reported.
+   */
+  private boolean report(int body, int other) {
+    if (body < 0) {
+      return true;
+    }
+
+    long key = body < other
+        ? ((long) body << 32) | other
+        : ((long) other << 32) | body;
+    int mask = reported.length - 1;
+    int i = hash(key) & mask;
+    while (reported[i] != 0) {
+      if (reported[i] == key) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+
+    reported[i] = key;
+    reportedCount++;
+    if (reportedCount * 2 > reported.length) {
+      rehash();
+    }
+    return true;
+  }
+
+  private static int hash(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+  }
+
+  private void rehash() {
+    long[] old = reported;
+    reported = new long[old.length * 2];
+    int mask = reported.length - 1;
+    for (long key : old) {
+      if (key != 0) {
+        int i = hash(key) & mask;
+        while (reported[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        reported[i] = key;
+      }
+    }
+  }
+
+  /** Sorts the contacts by body id. There are rarely more than a few. */
+  private void sort() {
+    for (int i = 1; i < size; i++) {
+      int body = bodies[i];
+      Entity other = others[i];
+      float x = projectionX[i];
+      float y = projectionY[i];
+
+      int j = i - 1;
+      while (j >= 0 && bodies[j] > body) {
+        bodies[j + 1] = bodies[j];
+        others[j + 1] = others[j];
+        projectionX[j + 1] = projectionX[j];
+        projectionY[j + 1] = projectionY[j];
+        j--;
+      }
+      bodies[j + 1] = body;
+      others[j + 1] = other;
+      projectionX[j + 1] = x;
+      projectionY[j + 1] = y;
+    }
+  }
+
+  private void grow() {
+    int length = bodies.length * 2;
+    bodies = Arrays.copyOf(bodies, length);
+    others = Arrays.copyOf(others, length);
+    projectionX = Arrays.copyOf(projectionX, length);
+    projectionY = Arrays.copyOf(projectionY, length);
+  }
+}
@@ -1,82 +1,248 @@
 package com.zeddic.war.collision;
 
-import android.util.FloatMath;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.util.SimpleList;
-import com.zeddic.common.util.Vector2d;
 
+/**
+ * A single cell of an entity grid. The cell stores the ids of the bodies in
+ * it, and looks up their positions in the grid's {@link Bodies}.
+ */
 public class EntityCell {
 
   private static int INITIAL_CAPACITY = 40;
-  private Vector2d projection = new Vector2d();
-  protected SimpleList<Entity> items;
+  private final Bodies bodies;
+  protected int[] ids;
+  protected int size;
+  
+  /**
+   * Every layer any body in the cell sits in. Kept until the cell empties
+   * rather than worked out again on each removal, so it may include layers
+   * no longer present, but never misses one that is.
+   */
+  protected int layers;
+  protected SimpleList<CollideComponent> watchers;
   protected int row;
   protected int col;
 
-  public EntityCell(int row, int col) {
+  EntityCell(Bodies bodies, int row, int col) {
+    this.bodies = bodies;
     this.row = row;
     this.col = col;
-    items = new SimpleList<Entity>(Entity.class, INITIAL_CAPACITY);
+    ids = new int[INITIAL_CAPACITY];
+    watchers = new SimpleList<CollideComponent>(CollideComponent.class, INITIAL_CAPACITY);
   }
 
-  public boolean collide(Entity entity) {
+  /**
+   * Adds every body in the cell that overlaps the component's entity to
+   * the contacts.
+   */
+  public void findContacts(CollideComponent component, Contacts contacts) {
+    Entity entity = component.entity;
+    float[] x = bodies.x;
+    float[] y = bodies.y;
+    float[] radius = bodies.radius;
+    int[] categories = bodies.categories;
+    int mask = component.getMask();
+    if ((layers & mask) == 0) {
+      return;
+    }
     
-    Entity other;
-    for (int i = 0; i < items.size; i++) {
-      other = items.items[i];
-
-      if (other == entity) {
+    float entityX = entity.x;
+    float entityY = entity.y;
+    float entityRadius = entity.radius;
+    
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if ((categories[id] & mask) == 0) {
         continue;
       }
-
-      // Are they colliding now?
-      float dX = entity.x - other.x;
-      float dY = entity.y - other.y;
-      float minDistance = entity.radius + other.radius;
-      boolean colliding = dX * dX + dY * dY < minDistance * minDistance;
       
-      if (colliding) {
-        float seperationNeeded = minDistance - FloatMath.sqrt(dX * dX + dY * dY);
-        projection.x = dX;
-        projection.y = dY;
-        projection.normalize();
-        projection.x *= seperationNeeded;
-        projection.y *= seperationNeeded;
-        
-        entity.collide(other, projection, false);
-        projection.x *= -1;
-        projection.y *= -1;
-        other.collide(entity, projection, true);
-        
-        entity.x += projection.x * -1;
-        entity.y += projection.y * -1;
-
-        return true;
+      float dX = entityX - x[id];
+      float dY = entityY - y[id];
+      float minDistance = entityRadius + radius[id];
+      if (dX * dX + dY * dY < minDistance * minDistance && id != component.body) {
+        contacts.add(id, bodies.entity(id), dX, dY, minDistance);
       }
     }
+  }
+  
+  /**
+   * Returns how far through the move (dX, dY) the entity first touches
+   * another entity in this cell, as a fraction from 0 to 1, or 1 if it
+   * touches none. Entities it is already touching are left to
+   * {@link #findContacts(CollideComponent, Contacts)}.
+   */
+  public float sweep(CollideComponent component, float dX, float dY) {
+    Entity entity = component.entity;
+    float[] x = bodies.x;
+    float[] y = bodies.y;
+    float[] radius = bodies.radius;
+    int[] categories = bodies.categories;
+    int mask = component.getMask();
+    if ((layers & mask) == 0) {
+      return 1;
+    }
     
-    return false;
+    float entityX = entity.x;
+    float entityY = entity.y;
+    float entityRadius = entity.radius;
+    
+    float first = 1;
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if ((categories[id] & mask) == 0) {
+        continue;
+      }
+      
+      float time = Narrowphase.sweep(
+          entityX - x[id], entityY - y[id], entityRadius + radius[id], dX, dY);
+      if (time < first && id != component.body) {
+        first = time;
+      }
+    }
+    return first;
+  }
+  
+  /**
+   * Records the first entity in the given layers that the ray from (x0, y0)
+   * along (dX, dY) touches in the hit, if it is nearer than what the hit
+   * already holds.
+   */
+  void raycast(float x0, float y0, float dX, float dY, int layers, RayHit hit) {
+    if ((this.layers & layers) == 0) {
+      return;
+    }
+    
+    int[] categories = bodies.categories;
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if ((categories[id] & layers) == 0) {
+        continue;
+      }
+      
+      float time = Narrowphase.raycast(
+          x0 - bodies.x[id], y0 - bodies.y[id], bodies.radius[id], dX, dY);
+      if (time < hit.fraction) {
+        hit.fraction = time;
+        hit.entity = bodies.entity(id);
+      }
+    }
   }
   
   /**
-   * Adds a new object to this grid position.
+   * Adds a new body to this grid position, letting any watchers know.
+   * Returns the slot the body was stored in, which is needed to remove
+   * it again. The body must not already be in this cell.
    */
-  public void add(Entity object) {
-    items.add(object);
+  public int add(CollideComponent component) {
+    if (size == ids.length) {
+      int[] newIds = new int[ids.length * 2];
+      System.arraycopy(ids, 0, newIds, 0, size);
+      ids = newIds;
+    }
+    
+    ids[size] = component.body;
+    layers |= bodies.categories[component.body];
+    notifyWatchers(component.entity);
+    return size++;
+  }
+  
+  /**
+   * Lets any watchers know that an object already in this grid position
+   * has moved.
+   */
+  public void moved(Entity object) {
+    notifyWatchers(object);
+  }
+  
+  private void notifyWatchers(Entity object) {
+    // Walk backwards; a watcher that wakes removes itself from the list.
+    for (int i = watchers.size - 1; i >= 0; i--) {
+      Narrowphase.notifyWatcher(watchers.items[i], object);
+    }
+  }
+  
+  public void addWatcher(CollideComponent component) {
+    watchers.add(component);
+  }
+  
+  public void removeWatcher(CollideComponent component) {
+    watchers.remove(component);
   }
   
   /**
    * Returns true if an entity is currently in the cell.
    */
   public boolean contains(Entity object) {
-    return items.contains(object);
+    for (int i = 0; i < size; i++) {
+      if (bodies.entity(ids[i]) == object) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Offers every entity in the cell that sits in the layers being searched
+   * for to a nearest entity search around the given point. Cells holding
+   * none of those layers are skipped without looking at their bodies.
+   */
+  void offerTo(float x, float y, Neighbours result) {
+    if ((layers & result.layers) == 0) {
+      return;
+    }
+    
+    float[] bodyX = bodies.x;
+    float[] bodyY = bodies.y;
+    int[] categories = bodies.categories;
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if ((categories[id] & result.layers) == 0) {
+        continue;
+      }
+      
+      float dX = bodyX[id] - x;
+      float dY = bodyY[id] - y;
+      float distanceSquared = dX * dX + dY * dY;
+      if (result.accepts(distanceSquared)) {
+        result.offer(bodies.entity(id), distanceSquared);
+      }
+    }
+  }
+  
+  /**
+   * Adds every entity in the cell that sits in any of the given layers to
+   * the given list.
+   */
+  public void appendTo(int layers, SimpleList<Entity> result) {
+    if ((this.layers & layers) == 0) {
+      return;
+    }
+    
+    int[] categories = bodies.categories;
+    for (int i = 0; i < size; i++) {
+      int id = ids[i];
+      if ((categories[id] & layers) != 0) {
+        result.append(bodies.entity(id));
+      }
+    }
   }
   
   /**
-   * Removes an object from the grid spot.
+   * Removes the body in the given slot from the grid spot. The last body
+   * in the cell is moved into the freed slot, and its collide component is
+   * told where it now is.
    */
-  public void remove(Entity object) {
-    items.remove(object);
+  public void remove(int slot) {
+    size--;
+    if (size == 0) {
+      layers = 0;
+    }
+    if (slot != size) {
+      int moved = ids[size];
+      ids[slot] = moved;
+      CollideComponent component = bodies.components[moved];
+      component.slots[component.slotIndex(row, col)] = slot;
+    }
   }
 }
@@ -5,16 +5,19 @@ import com.zeddic.common.util.SimpleList;
 import com.zeddic.war.level.Level;
 
 /**
- * A collision grid holding entities that reside in the game world.
+ * A collision grid holding entities that reside in the game world. Cells
+ * hold body ids, with the bodies themselves kept in one {@link Bodies}.
  * 
  * @author scott@zeddic.com (Scott Bailey)
  */
-public class EntityGrid {
+public class EntityGrid implements Broadphase {
 
   private float size;
   private final int cols;
   private final int rows;
 	private EntityCell[][] grid;
+	private final Bodies bodies = new Bodies();
+	private final GridWalk walk = new GridWalk();
 	
 	/**
 	 * Creates a new collision grid for world objects, with each
@@ -29,15 +32,17 @@ public class EntityGrid {
 	  grid = new EntityCell[rows][cols];
 	  for (int row = 0; row < rows; row++) {
       for (int col = 0; col < cols; col++) {
-        grid[row][col] = new EntityCell(row, col);
+        grid[row][col] = new EntityCell(bodies, row, col);
       }
     }
 	}
 	
 	/**
-	 * Collides an entity with the _edges_ of any tile map pieces.
+	 * Finds the entities overlapping an entity in the cells it covers. One
+	 * that shares several cells with it is only added once.
 	 */
-	public boolean collide(CollideComponent component) {	 
+	@Override
+	public void findContacts(CollideComponent component, Contacts contacts) {	 
 	  Entity entity = component.entity;
 	  
     int minCol = gridValue(entity.left());
@@ -45,16 +50,81 @@ public class EntityGrid {
     int minRow = gridValue(entity.top());
     int maxRow = gridValue(entity.bottom());
  
-    boolean hit = false;
     for (int row = minRow; row <= maxRow; row++) {
       for(int col = minCol; col <= maxCol; col++) {
         if (row >= 0 && row < rows && col >= 0 && col < cols) {
-          hit = grid[row][col].collide(entity) || hit;
+          grid[row][col].findContacts(component, contacts);
         }
       }
     }
+	}
 
-    return hit;
+	/**
+	 * Returns how far through the move (dX, dY) the entity first touches
+	 * another entity, as a fraction from 0 to 1, or 1 if it touches none.
+	 */
+	@Override
+	public float sweep(CollideComponent component, float dX, float dY) {
+	  Entity entity = component.entity;
+	  
+	  int minCol = gridValue(Math.min(entity.x, entity.x + dX) - entity.radius);
+	  int maxCol = gridValue(Math.max(entity.x, entity.x + dX) + entity.radius);
+	  int minRow = gridValue(Math.min(entity.y, entity.y + dY) - entity.radius);
+	  int maxRow = gridValue(Math.max(entity.y, entity.y + dY) + entity.radius);
+	  
+	  float first = 1;
+	  for (int row = Math.max(0, minRow); row <= maxRow && row < rows; row++) {
+	    for (int col = Math.max(0, minCol); col <= maxCol && col < cols; col++) {
+	      first = Math.min(first, grid[row][col].sweep(component, dX, dY));
+	    }
+	  }
+	  return first;
+	}
+	
+	/**
+	 * Reads the cells directly rather than gathering them into a list first,
+	 * so any number of {@link ProximityQuery}s can search at once.
+	 */
+	@Override
+	public void query(float x, float y, float radius, int layers, SimpleList<Entity> result) {
+	  result.clear();
+	  
+	  int minRow = Math.max(0, gridValue(y - radius));
+	  int maxRow = Math.min(rows - 1, gridValue(y + radius));
+	  int minCol = Math.max(0, gridValue(x - radius));
+	  int maxCol = Math.min(cols - 1, gridValue(x + radius));
+	  for (int col = minCol; col <= maxCol; col++) {
+	    for (int row = minRow; row <= maxRow; row++) {
+	      grid[row][col].appendTo(layers, result);
+	    }
+	  }
+	}
+
+	@Override
+	public void nearest(float x, float y, Neighbours result) {
+	  result.searchGrid(grid, rows, cols, size, x, y);
+	}
+
+	/**
+	 * Walks the cells along the line in order. An entity is in every cell it
+	 * covers, so whatever the line touches first is in the cell the line is
+	 * in at that point, and the walk can stop at the first cell holding a
+	 * hit.
+	 */
+	@Override
+	public void raycast(float x0, float y0, float x1, float y1, int layers, RayHit hit) {
+	  float dX = x1 - x0;
+	  float dY = y1 - y0;
+	  walk.start(x0, y0, x1, y1, size);
+	  do {
+	    if (walk.entered >= hit.fraction) {
+	      return;
+	    }
+	    EntityCell cell = get(walk.row, walk.col);
+	    if (cell != null) {
+	      cell.raycast(x0, y0, dX, dY, layers, hit);
+	    }
+	  } while (hit.fraction > walk.exited() && walk.next());
 	}
 
 	/**
@@ -143,39 +213,150 @@ public class EntityGrid {
   }
   
   /**
-   * Updates an objects position in the grid.
+   * Updates an objects position in the grid. Only the cells the entity has
+   * entered or left are changed, so an entity that stays within the same
+   * cells, as most do from one update to the next, costs very little.
    */
+  @Override
   public void update(CollideComponent component) {
-    remove(component);
-    add(component);
+    if (component.broadphase != this) {
+      add(component);
+      return;
+    }
+    
+    bodies.sync(component);
+    Entity entity = component.entity;
+    int minRow = Math.max(0, gridValue(entity.top()));
+    int maxRow = Math.min(rows - 1, gridValue(entity.bottom()));
+    int minCol = Math.max(0, gridValue(entity.left()));
+    int maxCol = Math.min(cols - 1, gridValue(entity.right()));
+    
+    int oldMinRow = component.minRow;
+    int oldMaxRow = component.maxRow;
+    int oldMinCol = component.minCol;
+    int oldMaxCol = component.maxCol;
+    
+    if (minRow == oldMinRow && maxRow == oldMaxRow &&
+        minCol == oldMinCol && maxCol == oldMaxCol) {
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          grid[row][col].moved(entity);
+        }
+      }
+      return;
+    }
+    
+    // Leave any cells no longer covered.
+    for (int row = oldMinRow; row <= oldMaxRow; row++) {
+      for (int col = oldMinCol; col <= oldMaxCol; col++) {
+        if (row < minRow || row > maxRow || col < minCol || col > maxCol) {
+          grid[row][col].remove(component.slots[component.slotIndex(row, col)]);
+        }
+      }
+    }
+    
+    // Enter newly covered cells, building up the slots for the new range.
+    // Cells the entity was already in keep their slot and just let their
+    // watchers know it moved.
+    int width = maxCol - minCol + 1;
+    int[] slots = ensureCapacity(component.spareSlots, width * (maxRow - minRow + 1));
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        int index = (row - minRow) * width + (col - minCol);
+        if (row < oldMinRow || row > oldMaxRow || col < oldMinCol || col > oldMaxCol) {
+          slots[index] = grid[row][col].add(component);
+        } else {
+          slots[index] = component.slots[component.slotIndex(row, col)];
+          grid[row][col].moved(entity);
+        }
+      }
+    }
+    
+    component.spareSlots = component.slots;
+    component.slots = slots;
+    component.minRow = minRow;
+    component.maxRow = maxRow;
+    component.minCol = minCol;
+    component.maxCol = maxCol;
   }
 
   /**
    * Adds an entity into the collision system.
    */
+  @Override
   public void add(CollideComponent component) {
+    if (component.broadphase == this) {
+      remove(component);
+    }
+    
     Entity entity = component.entity;
-    for (int col = gridValue(entity.left()); col <= gridValue(entity.right()); col++) {
-      for (int row = gridValue(entity.top()); row <= gridValue(entity.bottom()); row++) {
-        EntityCell cell = get(row, col);
-        if (cell != null) {
-          cell.add(entity);
-          component.currentCells.add(cell);
-        }
+    bodies.add(component);
+    component.broadphase = this;
+    component.minRow = Math.max(0, gridValue(entity.top()));
+    component.maxRow = Math.min(rows - 1, gridValue(entity.bottom()));
+    component.minCol = Math.max(0, gridValue(entity.left()));
+    component.maxCol = Math.min(cols - 1, gridValue(entity.right()));
+    component.slots = ensureCapacity(component.slots,
+        (component.maxCol - component.minCol + 1) * (component.maxRow - component.minRow + 1));
+    
+    for (int row = component.minRow; row <= component.maxRow; row++) {
+      for (int col = component.minCol; col <= component.maxCol; col++) {
+        component.slots[component.slotIndex(row, col)] = grid[row][col].add(component);
       }
     }
   }
   
+  @Override
+  public void endTick() {
+    bodies.endTick();
+  }
+  
+  private static int[] ensureCapacity(int[] slots, int size) {
+    return slots.length >= size ? slots : new int[size];
+  }
+  
   /**
-   * Removes an object from the grid entirely.
+   * Adds the component as a watcher of every cell within the given radius of
+   * its entity.
    */
-  public void remove(CollideComponent component) {
+  @Override
+  public void watch(CollideComponent component, float radius) {
     Entity entity = component.entity;
- 
-    int length = component.currentCells.size;
+    getCellsWithinRadius(entity.x, entity.y, radius, component.watchedCells);
+    
+    int length = component.watchedCells.size;
     for (int i = 0; i < length; i++) {
-      component.currentCells.items[i].remove(entity);
+      component.watchedCells.items[i].addWatcher(component);
+    }
+  }
+  
+  /**
+   * Removes the component from all cells it watches.
+   */
+  @Override
+  public void unwatch(CollideComponent component) {
+    int length = component.watchedCells.size;
+    for (int i = 0; i < length; i++) {
+      component.watchedCells.items[i].removeWatcher(component);
+    }
+    component.watchedCells.clear();
+  }
+  
+  /**
+   * Removes an object from the grid entirely.
+   */
+  @Override
+  public void remove(CollideComponent component) {
+    if (component.broadphase != this) {
+      return;
+    }
+    
+    for (int row = component.minRow; row <= component.maxRow; row++) {
+      for (int col = component.minCol; col <= component.maxCol; col++) {
+        grid[row][col].remove(component.slots[component.slotIndex(row, col)]);
+      }
     }
-    component.currentCells.clear();
+    bodies.remove(component);
+    component.broadphase = null;
   }
 }
@@ -0,0 +1,84 @@
+package com.zeddic.war.collision;
+
+/**
+ * Walks the cells of a grid that a line segment passes through, in order
+ * from its start, using the method of Amanatides and Woo. Each step only
+ * compares how far along the segment the next column and the next row are,
+ * so the cost depends on how many cells the segment crosses and nothing
+ * else.
+ *
+ * <p>A walk is reused for each segment rather than created, so walking
+ * allocates nothing.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class GridWalk {
+
+  /** The cell the walk is in. */
+  int row;
+  int col;
+
+  /** How far along the segment, from 0 to 1, the current cell was entered. */
+  float entered;
+
+  private int stepCol;
+  private int stepRow;
+  private int cellsLeft;
+  private float nextCol;
+  private float nextRow;
+  private float colStep;
+  private float rowStep;
+
+  /** Starts a walk from (x0, y0) to (x1, y1) over cells of the given size. */
+  void start(float x0, float y0, float x1, float y1, float size) {
+    float dX = x1 - x0;
+    float dY = y1 - y0;
+    col = (int) Math.floor(x0 / size);
+    row = (int) Math.floor(y0 / size);
+    stepCol = dX > 0 ? 1 : -1;
+    stepRow = dY > 0 ? 1 : -1;
+    cellsLeft = Math.abs((int) Math.floor(x1 / size) - col)
+        + Math.abs((int) Math.floor(y1 / size) - row);
+
+    // How far along the segment the next column and row are reached, and
+    // how far along the segment one whole cell is.
+    nextCol = dX == 0
+        ? Float.MAX_VALUE
+        : ((dX > 0 ? col + 1 : col) * size - x0) / dX;
+    nextRow = dY == 0
+        ? Float.MAX_VALUE
+        : ((dY > 0 ? row + 1 : row) * size - y0) / dY;
+    colStep = dX == 0 ? Float.MAX_VALUE : size / Math.abs(dX);
+    rowStep = dY == 0 ? Float.MAX_VALUE : size / Math.abs(dY);
+    entered = 0;
+  }
+
+  /**
+   * Returns how far along the segment, from 0 to 1, the current cell is
+   * left.
+   */
+  float exited() {
+    return Math.min(1, Math.min(nextCol, nextRow));
+  }
+
+  /**
+   * Moves on to the next cell. Returns false, without moving, once the
+   * cell holding the end of the segment has been reached.
+   */
+  boolean next() {
+    if (cellsLeft-- <= 0) {
+      return false;
+    }
+
+    if (nextCol < nextRow) {
+      entered = nextCol;
+      nextCol += colStep;
+      col += stepCol;
+    } else {
+      entered = nextRow;
+      nextRow += rowStep;
+      row += stepRow;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,396 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.SimpleList;
+import com.zeddic.war.level.Level;
+
+/**
+ * A broadphase made of several grids stacked on top of each other, each
+ * with cells twice the size of the one below. An entity lives in just one
+ * cell: the one holding its center, in the finest grid whose cells are at
+ * least as wide as the entity.
+ *
+ * <p>Unlike a single {@link EntityGrid}, a large entity such as a planet
+ * never covers dozens of small cells, and small entities never share cells
+ * with it. Since an entity may stick out of its cell by up to its radius,
+ * each check looks as far around as the largest entity in every grid that
+ * holds any entities.
+ *
+ * <p>Cells hold body ids, with the bodies themselves kept in one
+ * {@link Bodies}. Cells are only created once something is placed in or
+ * watches them, so the fine grids cost little on large levels. A sleeping
+ * entity watches a few cells of just one grid, so going to sleep and waking
+ * up stays cheap.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class HierarchicalGrid implements Broadphase {
+
+  /** The size of the cells in the finest grid. */
+  private static final float MIN_SIZE = 64;
+
+  private final int depth;
+  private final float[] sizes;
+  private final int[] rows;
+  private final int[] cols;
+  private final EntityCell[][][] cells;
+  private final Bodies bodies = new Bodies();
+
+  /** How many entities each grid holds. Empty grids are skipped. */
+  private final int[] counts;
+
+  /**
+   * The largest radius of any entity ever placed in each grid. At most half
+   * the cell size, except in the coarsest grid which takes entities of any
+   * size.
+   */
+  private final float[] reach;
+
+  /** The largest radius of any entity ever placed in any grid. */
+  private float maxRadius;
+
+  /** How many components watch cells in each grid. */
+  private final int[] watchers;
+  
+  private final GridWalk walk = new GridWalk();
+
+  /**
+   * Creates a new set of grids covering the level, from the finest up to
+   * one with a single cell large enough for the whole level.
+   */
+  public HierarchicalGrid(Level level) {
+    float extent = Math.max(level.getWidth(), level.getHeight());
+    int depth = 1;
+    for (float size = MIN_SIZE; size < extent; size *= 2) {
+      depth++;
+    }
+
+    this.depth = depth;
+    sizes = new float[depth];
+    rows = new int[depth];
+    cols = new int[depth];
+    cells = new EntityCell[depth][][];
+    counts = new int[depth];
+    reach = new float[depth];
+    watchers = new int[depth];
+
+    float size = MIN_SIZE;
+    for (int i = 0; i < depth; i++) {
+      sizes[i] = size;
+      rows[i] = (int) (level.getHeight() / size) + 1;
+      cols[i] = (int) (level.getWidth() / size) + 1;
+      cells[i] = new EntityCell[rows[i]][cols[i]];
+      size *= 2;
+    }
+  }
+
+  @Override
+  public void add(CollideComponent component) {
+    if (component.broadphase == this) {
+      remove(component);
+    }
+
+    bodies.add(component);
+    component.broadphase = this;
+    place(component);
+  }
+
+  @Override
+  public void remove(CollideComponent component) {
+    if (component.broadphase != this) {
+      return;
+    }
+
+    leave(component);
+    bodies.remove(component);
+    component.broadphase = null;
+  }
+
+  /**
+   * Updates an object's position in the grids. Most updates leave the
+   * entity in the same cell, which only lets that cell's watchers know.
+   */
+  @Override
+  public void update(CollideComponent component) {
+    if (component.broadphase != this) {
+      add(component);
+      return;
+    }
+
+    bodies.sync(component);
+    Entity entity = component.entity;
+    int level = levelFor(entity.radius);
+    int row = row(level, entity.y);
+    int col = col(level, entity.x);
+    if (level == component.gridLevel && row == component.minRow && col == component.minCol) {
+      cells[level][row][col].moved(entity);
+      notifyWatchers(entity, level);
+      return;
+    }
+
+    leave(component);
+    place(component);
+  }
+
+  /** Puts a tracked entity into the cell that suits it. */
+  private void place(CollideComponent component) {
+    Entity entity = component.entity;
+    int level = levelFor(entity.radius);
+    int row = row(level, entity.y);
+    int col = col(level, entity.x);
+
+    component.gridLevel = level;
+    component.minRow = row;
+    component.maxRow = row;
+    component.minCol = col;
+    component.maxCol = col;
+    component.slots[0] = cell(level, row, col).add(component);
+
+    counts[level]++;
+    reach[level] = Math.max(reach[level], entity.radius);
+    maxRadius = Math.max(maxRadius, entity.radius);
+    notifyWatchers(entity, level);
+  }
+
+  /** Takes a tracked entity out of its cell. */
+  private void leave(CollideComponent component) {
+    int level = component.gridLevel;
+    cells[level][component.minRow][component.minCol].remove(component.slots[0]);
+    counts[level]--;
+  }
+
+  @Override
+  public void findContacts(CollideComponent component, Contacts contacts) {
+    Entity entity = component.entity;
+
+    for (int level = 0; level < depth; level++) {
+      if (counts[level] == 0) {
+        continue;
+      }
+
+      float reach = this.reach[level];
+      int minRow = row(level, entity.top() - reach);
+      int maxRow = row(level, entity.bottom() + reach);
+      int minCol = col(level, entity.left() - reach);
+      int maxCol = col(level, entity.right() + reach);
+
+      EntityCell[][] grid = cells[level];
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          EntityCell cell = grid[row][col];
+          if (cell != null) {
+            cell.findContacts(component, contacts);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public float sweep(CollideComponent component, float dX, float dY) {
+    Entity entity = component.entity;
+    float left = Math.min(entity.x, entity.x + dX) - entity.radius;
+    float right = Math.max(entity.x, entity.x + dX) + entity.radius;
+    float top = Math.min(entity.y, entity.y + dY) - entity.radius;
+    float bottom = Math.max(entity.y, entity.y + dY) + entity.radius;
+
+    float first = 1;
+    for (int level = 0; level < depth; level++) {
+      if (counts[level] == 0) {
+        continue;
+      }
+
+      float reach = this.reach[level];
+      int minRow = row(level, top - reach);
+      int maxRow = row(level, bottom + reach);
+      int minCol = col(level, left - reach);
+      int maxCol = col(level, right + reach);
+
+      EntityCell[][] grid = cells[level];
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          EntityCell cell = grid[row][col];
+          if (cell != null) {
+            first = Math.min(first, cell.sweep(component, dX, dY));
+          }
+        }
+      }
+    }
+    return first;
+  }
+
+  @Override
+  public void query(float x, float y, float radius, int layers, SimpleList<Entity> result) {
+    result.clear();
+
+    for (int level = 0; level < depth; level++) {
+      if (counts[level] == 0) {
+        continue;
+      }
+
+      float reach = radius + this.reach[level];
+      int minRow = row(level, y - reach);
+      int maxRow = row(level, y + reach);
+      int minCol = col(level, x - reach);
+      int maxCol = col(level, x + reach);
+
+      EntityCell[][] grid = cells[level];
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int col = minCol; col <= maxCol; col++) {
+          EntityCell cell = grid[row][col];
+          if (cell != null) {
+            cell.appendTo(layers, result);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Searches each grid that holds any entities in turn. An entity is only
+   * in the cell holding its center, so the same search works in every
+   * grid, and whatever the finer grids found lets the coarser ones stop
+   * sooner.
+   */
+  @Override
+  public void nearest(float x, float y, Neighbours result) {
+    for (int level = 0; level < depth; level++) {
+      if (counts[level] > 0) {
+        result.searchGrid(cells[level], rows[level], cols[level], sizes[level], x, y);
+      }
+    }
+  }
+
+  /**
+   * Walks the cells along the line in each grid that holds any entities.
+   * An entity may stick out of its cell by up to its radius, so the cells
+   * around each one walked are checked as well.
+   */
+  @Override
+  public void raycast(float x0, float y0, float x1, float y1, int layers, RayHit hit) {
+    float dX = x1 - x0;
+    float dY = y1 - y0;
+    for (int level = 0; level < depth; level++) {
+      if (counts[level] == 0) {
+        continue;
+      }
+
+      int spread = (int) Math.ceil(reach[level] / sizes[level]);
+      EntityCell[][] grid = cells[level];
+      walk.start(x0, y0, x1, y1, sizes[level]);
+      do {
+        if (walk.entered >= hit.fraction) {
+          break;
+        }
+        int minRow = Math.max(0, walk.row - spread);
+        int maxRow = Math.min(rows[level] - 1, walk.row + spread);
+        int minCol = Math.max(0, walk.col - spread);
+        int maxCol = Math.min(cols[level] - 1, walk.col + spread);
+        for (int row = minRow; row <= maxRow; row++) {
+          for (int col = minCol; col <= maxCol; col++) {
+            EntityCell cell = grid[row][col];
+            if (cell != null) {
+              cell.raycast(x0, y0, dX, dY, layers, hit);
+            }
+          }
+        }
+      } while (hit.fraction > walk.exited() && walk.next());
+    }
+  }
+
+  /**
+   * Watches the cells around the component's entity in a single grid, the
+   * one whose cells are as wide as the watched area. Entities in other
+   * grids report to the cell holding their center in that grid as well,
+   * see {@link #notifyWatchers(Entity, int)}.
+   */
+  @Override
+  public void watch(CollideComponent component, float radius) {
+    Entity entity = component.entity;
+    SimpleList<EntityCell> watched = component.watchedCells;
+    watched.clear();
+
+    int level = levelFor(radius);
+    float reach = radius + maxRadius;
+    int minRow = row(level, entity.y - reach);
+    int maxRow = row(level, entity.y + reach);
+    int minCol = col(level, entity.x - reach);
+    int maxCol = col(level, entity.x + reach);
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        EntityCell cell = cell(level, row, col);
+        cell.addWatcher(component);
+        watched.append(cell);
+      }
+    }
+
+    component.watchRadius = radius;
+    watchers[level]++;
+  }
+
+  @Override
+  public void unwatch(CollideComponent component) {
+    int length = component.watchedCells.size;
+    if (length == 0) {
+      return;
+    }
+
+    for (int i = 0; i < length; i++) {
+      component.watchedCells.items[i].removeWatcher(component);
+    }
+    component.watchedCells.clear();
+    watchers[levelFor(component.watchRadius)]--;
+  }
+
+  @Override
+  public void endTick() {
+    bodies.endTick();
+  }
+
+  /**
+   * Lets watchers in every other grid know that an entity in the given
+   * grid moved. Watchers in its own grid already heard from its cell.
+   */
+  private void notifyWatchers(Entity entity, int level) {
+    for (int i = 0; i < depth; i++) {
+      if (i == level || watchers[i] == 0) {
+        continue;
+      }
+      EntityCell cell = cells[i][row(i, entity.y)][col(i, entity.x)];
+      if (cell != null) {
+        cell.moved(entity);
+      }
+    }
+  }
+
+  /** Returns the finest grid whose cells are as wide as the given radius. */
+  private int levelFor(float radius) {
+    int level = 0;
+    while (level < depth - 1 && sizes[level] < radius * 2) {
+      level++;
+    }
+    return level;
+  }
+
+  /** Returns the cell at the given spot, creating it if needed. */
+  private EntityCell cell(int level, int row, int col) {
+    EntityCell cell = cells[level][row][col];
+    if (cell == null) {
+      cell = new EntityCell(bodies, row, col);
+      cells[level][row][col] = cell;
+    }
+    return cell;
+  }
+
+  /** Returns the row holding the given y, clamped to the grid. */
+  private int row(int level, float y) {
+    int row = (int) Math.floor(y / sizes[level]);
+    return Math.max(0, Math.min(rows[level] - 1, row));
+  }
+
+  /** Returns the column holding the given x, clamped to the grid. */
+  private int col(int level, float x) {
+    int col = (int) Math.floor(x / sizes[level]);
+    return Math.max(0, Math.min(cols[level] - 1, col));
+  }
+}
@@ -0,0 +1,94 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.platform.FloatMath;
+
+/**
+ * The exact checks between a pair of entities, shared by every
+ * {@link Broadphase}. A broadphase only narrows down which pairs are worth
+ * checking; these decide whether they actually touch.
+ */
+final class Narrowphase {
+
+  /**
+   * How far a moving entity may overlap something and still only count as
+   * touching it. An entity pushed clear of something is left touching it,
+   * give or take rounding, and must still be free to slide along it, while
+   * moving any further in is a hit almost at once.
+   */
+  static final float TOUCHING = 0.005f;
+
+  private Narrowphase() {}
+
+  /**
+   * Returns how far through the move (dX, dY) a circle first overlaps
+   * another by more than {@link #TOUCHING}, given where the moving circle
+   * starts relative to the other and the sum of their radii. Returns 1 if
+   * it never does. Circles that already overlap by more, or are moving
+   * apart, are left to the overlap checks that fill in {@link Contacts}.
+   */
+  static float sweep(float offsetX, float offsetY, float minDistance, float dX, float dY) {
+    return firstContact(offsetX, offsetY, minDistance - TOUCHING, dX, dY);
+  }
+
+  /**
+   * Returns how far through the move (dX, dY) a circle first touches
+   * another exactly, or 1 if it never does or they already touch.
+   */
+  private static float firstContact(
+      float offsetX, float offsetY, float minDistance, float dX, float dY) {
+    float moveSquared = dX * dX + dY * dY;
+    if (moveSquared == 0) {
+      return 1;
+    }
+    
+    // Solve for the point along the move where the distance between the
+    // two centers is exactly the sum of their radii.
+    float gap = offsetX * offsetX + offsetY * offsetY - minDistance * minDistance;
+    float approach = offsetX * dX + offsetY * dY;
+    if (gap <= 0 || approach >= 0) {
+      return 1;
+    }
+
+    float discriminant = approach * approach - moveSquared * gap;
+    if (discriminant < 0) {
+      return 1;
+    }
+
+    return Math.min(1, (-approach - FloatMath.sqrt(discriminant)) / moveSquared);
+  }
+  
+  /**
+   * Returns how far along the ray (dX, dY), from 0 to 1, it first touches a
+   * circle, given where the ray starts relative to the circle's center.
+   * Returns 1 if it misses, and 0 if it starts inside the circle.
+   */
+  static float raycast(float offsetX, float offsetY, float radius, float dX, float dY) {
+    if (offsetX * offsetX + offsetY * offsetY <= radius * radius) {
+      return 0;
+    }
+    return firstContact(offsetX, offsetY, radius, dX, dY);
+  }
+  
+  /**
+   * Tells a watching entity that another entity moved within the area it
+   * watches.
+   */
+  static void notifyWatcher(CollideComponent component, Entity object) {
+    Entity watcher = component.entity;
+    if (watcher == object) {
+      return;
+    }
+    
+    // A sleeping entity would have to push itself away from anything now
+    // overlapping it on its next update, so it can't stay asleep.
+    float dX = watcher.x - object.x;
+    float dY = watcher.y - object.y;
+    float minDistance = watcher.radius + object.radius;
+    if (dX * dX + dY * dY < minDistance * minDistance) {
+      watcher.wake();
+    } else {
+      watcher.onWatchedCellEntered(object);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+
+/**
+ * The result of a nearest entity search: up to k entities, nearest first,
+ * along with their squared distances.
+ *
+ * <p>A broadphase visits the entities closest to the search point first
+ * and asks {@link #accepts(float)} before going further out. Once the
+ * search is full, nothing further away than the worst entity found can get
+ * in, so the search stops long before it has seen everything in range.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class Neighbours {
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  /** The entities found so far, nearest first. */
+  Entity[] entities = new Entity[INITIAL_CAPACITY];
+  float[] distances = new float[INITIAL_CAPACITY];
+  int size;
+
+  /** The {@link CollisionLayers} being searched for. */
+  int layers;
+
+  private int k;
+  private float radiusSquared;
+  private Entity exclude;
+  private boolean any;
+
+  /**
+   * Starts a new search for the k nearest entities in the given layers
+   * within the radius, ignoring the excluded entity. A search for any
+   * entity at all stops at the first one found, near or not.
+   */
+  void reset(int k, float radius, int layers, Entity exclude, boolean any) {
+    if (k > entities.length) {
+      entities = new Entity[k];
+      distances = new float[k];
+    }
+    for (int i = 0; i < size; i++) {
+      entities[i] = null;
+    }
+
+    this.k = k;
+    this.radiusSquared = radius * radius;
+    this.layers = layers;
+    this.exclude = exclude;
+    this.any = any;
+    size = 0;
+  }
+
+  /**
+   * Returns true if an entity at the given squared distance would still be
+   * added. The search can stop once this is false for everything left.
+   */
+  boolean accepts(float distanceSquared) {
+    if (any && size > 0) {
+      return false;
+    }
+    return size < k ? distanceSquared <= radiusSquared : distanceSquared < distances[k - 1];
+  }
+
+  /**
+   * Adds an entity at the given squared distance if it is among the k
+   * nearest so far. An entity may be offered more than once.
+   */
+  void offer(Entity entity, float distanceSquared) {
+    if (!accepts(distanceSquared) || entity == exclude || !entity.enabled) {
+      return;
+    }
+    for (int i = 0; i < size; i++) {
+      if (entities[i] == entity) {
+        return;
+      }
+    }
+
+    int i = size < k ? size++ : k - 1;
+    while (i > 0 && distances[i - 1] > distanceSquared) {
+      entities[i] = entities[i - 1];
+      distances[i] = distances[i - 1];
+      i--;
+    }
+    entities[i] = entity;
+    distances[i] = distanceSquared;
+  }
+
+  /**
+   * Searches a grid of cells, visiting one ring of cells at a time outward
+   * from the cell holding the point. Anything not yet seen lies entirely
+   * outside the rings visited so far, so the search ends as soon as the
+   * edge of those rings is further away than anything that would still be
+   * accepted. Cells may be null.
+   */
+  void searchGrid(EntityCell[][] grid, int rows, int cols, float size, float x, float y) {
+    int row = (int) Math.floor(y / size);
+    int col = (int) Math.floor(x / size);
+    int maxRing = Math.max(rows, cols) + Math.max(Math.abs(row), Math.abs(col));
+
+    for (int ring = 0; ring <= maxRing; ring++) {
+      for (int r = row - ring; r <= row + ring; r++) {
+        if (r < 0 || r >= rows) {
+          continue;
+        }
+        // Only the first and last rows of the ring are visited in full.
+        int step = r == row - ring || r == row + ring ? 1 : Math.max(1, ring * 2);
+        for (int c = col - ring; c <= col + ring; c += step) {
+          if (c >= 0 && c < cols && grid[r][c] != null) {
+            grid[r][c].offerTo(x, y, this);
+          }
+        }
+      }
+
+      float edge = Math.min(
+          Math.min(x - (col - ring) * size, (col + ring + 1) * size - x),
+          Math.min(y - (row - ring) * size, (row + ring + 1) * size - y));
+      if (!accepts(edge * edge)) {
+        return;
+      }
+    }
+  }
+}
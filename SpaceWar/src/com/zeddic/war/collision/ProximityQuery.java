@@ -0,0 +1,88 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.SimpleList;
+
+/**
+ * Searches for entities near a point, keeping its own scratch space and
+ * results. The lists returned are reused by the same query's next search,
+ * but no other query touches them, so a search made while looking through
+ * another query's results leaves them alone.
+ *
+ * <p>Searches only read the broadphase, so each worker, such as the AI or
+ * targeting spread across threads, can keep its own query and search at
+ * the same time as the others, as long as nothing is moving entities
+ * meanwhile. Once its lists have grown to fit, a query allocates nothing.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public final class ProximityQuery {
+
+  private final SimpleList<Entity> objects = SimpleList.create(Entity.class);
+  private final SimpleList<Entity> candidates = SimpleList.create(Entity.class);
+  private final Neighbours neighbours = new Neighbours();
+
+  /**
+   * Returns the enabled entities in any of the given {@link CollisionLayers}
+   * within the radius of a point. The list is reused by the next search.
+   */
+  public SimpleList<Entity> getNearbyObjects(int layers, float x, float y, float radius) {
+    CollisionSystem.get().getBroadphase().query(x, y, radius, layers, candidates);
+
+    float maxDistance = radius * radius;
+    objects.clear();
+    for (int i = 0; i < candidates.size; i++) {
+      Entity object = candidates.items[i];
+      if (!object.enabled) {
+        continue;
+      }
+
+      float dX = x - object.x;
+      float dY = y - object.y;
+      if (dX * dX + dY * dY <= maxDistance) {
+        objects.add(object);
+      }
+    }
+    return objects;
+  }
+
+  public Entity getClosest(int layers, float x, float y, float distance) {
+    return getClosest(layers, x, y, distance, null);
+  }
+
+  /**
+   * Returns the enabled entity in any of the given layers nearest a point,
+   * or null if there is none within the distance.
+   */
+  public Entity getClosest(int layers, float x, float y, float distance, Entity exclude) {
+    neighbours.reset(1, distance, layers, exclude, false);
+    CollisionSystem.get().getBroadphase().nearest(x, y, neighbours);
+    return neighbours.size > 0 ? neighbours.entities[0] : null;
+  }
+
+  /**
+   * Returns up to k enabled entities in any of the given layers within the
+   * distance of a point, nearest first. The list is reused by the next
+   * search.
+   */
+  public SimpleList<Entity> getNearest(int layers, float x, float y, float distance, int k) {
+    neighbours.reset(k, distance, layers, null, false);
+    CollisionSystem.get().getBroadphase().nearest(x, y, neighbours);
+
+    objects.clear();
+    for (int i = 0; i < neighbours.size; i++) {
+      objects.append(neighbours.entities[i]);
+    }
+    return objects;
+  }
+
+  /**
+   * Returns true if any enabled entity in the given layers is within the
+   * distance of a point. Stops at the first one found.
+   */
+  public boolean isAnyWithin(int layers, float x, float y, float distance) {
+    neighbours.reset(1, distance, layers, null, true);
+    CollisionSystem.get().getBroadphase().nearest(x, y, neighbours);
+    return neighbours.size > 0;
+  }
+}
@@ -3,100 +3,55 @@ package com.zeddic.war.collision;
 import com.zeddic.common.Entity;
 import com.zeddic.common.util.SimpleList;
 
+/**
+ * Searches for entities near a point from the game thread, all sharing one
+ * {@link ProximityQuery}. Each returned list is reused by the next call
+ * here, from anywhere; code that searches again while still looking through
+ * a result, or from another thread, should keep a query of its own.
+ */
 public class ProximityUtil {
 
-  // Reuse data structures across calls. This prevents the class from being
-  // thread safe, but saves having to create new memory allocations at run
-  // time which would kill game performance, especially since these methods
-  // may be call many many times.
-  //private static ProximityResult result = new ProximityResult();
-  //private static GridSpot[] spots = new GridSpot[1000];
-  //private static PhysicalObject[] nearbyObjects = new PhysicalObject[100];
-  
-  
-  
-  private static SimpleList<Entity> objects = SimpleList.create(Entity.class);
-  private static SimpleList<EntityCell> cells = SimpleList.create(EntityCell.class);
-  
+  private static final ProximityQuery query = new ProximityQuery();
+
+  /**
+   * Returns the enabled entities in any of the given {@link CollisionLayers}
+   * within the radius of a point. The list is reused by the next call.
+   */
   public static SimpleList<Entity> getNearbyObjects(
-      Class<?> targetClass,
+      int layers,
       float x,
       float y,
       float radius) {
-    
-    EntityGrid grid = CollisionSystem.get().getEntityGrid();
-    grid.getCellsWithinRadius(x, y, radius, cells);
-
-    Entity object;
-    EntityCell cell;
-    float maxDistance = radius * radius;
-    
-    objects.clear();
-    
-    for ( int i = 0 ; i < cells.size ; i++) {
-      
-      cell = cells.items[i];
-      int numObjects = cell.items.size;
-      
-      for (int j = 0; j < numObjects; j++) {
-        
-        object = cell.items.items[j];
-        
-        if (!object.enabled) {
-          continue;
-        }
-        
-        if (!targetClass.isInstance(object)) {
-          continue;
-        }
+    return query.getNearbyObjects(layers, x, y, radius);
+  }
 
-        float dX = x - object.x;
-        float dY = y - object.y;
-        float distanceSquared = dX * dX + dY * dY;
-        
-        if (distanceSquared > maxDistance) {
-          continue;
-        }
-        
-        objects.add(object);
-      }
-    }
-    
-    return objects;
+  public static Entity getClosest(int layers, float x, float y, float distance) {
+    return query.getClosest(layers, x, y, distance);
   }
-  
-  public static Entity getClosest(Class<?> targetClass, float x, float y, float distance) {
-    return getClosest(targetClass, x, y, distance, null);
+
+  /**
+   * Returns the enabled entity in any of the given layers nearest a point,
+   * or null if there is none within the distance. Only the cells around the
+   * point are searched, nearest first, until nothing further out could be
+   * closer.
+   */
+  public static Entity getClosest(int layers, float x, float y, float distance, Entity exclude) {
+    return query.getClosest(layers, x, y, distance, exclude);
   }
-  
-  public static Entity getClosest(Class<?> targetClass, float x, float y, float distance, Entity exclude) {
-    
-    float minDistanceSquared = Float.MAX_VALUE;
-    Entity target = null;
-    Entity object;
-    SimpleList<Entity> result = getNearbyObjects(targetClass, x, y, distance);
-    
-    for (int i = 0; i < result.size; i++) {
-      object = result.items[i];
-      
-      if (object == exclude) {
-        continue;
-      }
 
-      float dX = x - object.x;
-      float dY = y - object.y;
-      float distanceSquared = dX * dX + dY * dY;
-      if (distanceSquared < minDistanceSquared) {
-        target = object;
-        minDistanceSquared = distanceSquared;
-      }
-    }
-    
-    return target;
+  /**
+   * Returns up to k enabled entities in any of the given layers within the
+   * distance of a point, nearest first. The list is reused by the next call.
+   */
+  public static SimpleList<Entity> getNearest(int layers, float x, float y, float distance, int k) {
+    return query.getNearest(layers, x, y, distance, k);
   }
-  
-  public static class ProximityResult {
-    public Entity[] objects;
-    public int hits;
+
+  /**
+   * Returns true if any enabled entity in the given layers is within the
+   * distance of a point. Stops at the first one found.
+   */
+  public static boolean isAnyWithin(int layers, float x, float y, float distance) {
+    return query.isAnyWithin(layers, x, y, distance);
   }
 }
@@ -0,0 +1,34 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+
+/**
+ * The first thing a raycast ran into. Callers keep one around and pass it
+ * in to each raycast, so that casting allocates nothing.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class RayHit {
+
+  /**
+   * How far along the ray the hit is, from 0 at its start to 1 at its
+   * end. 1 if nothing was hit.
+   */
+  public float fraction = 1;
+
+  /** How far from the start of the ray the hit is. */
+  public float distance;
+
+  /** The entity hit, or null if the ray hit a tile or nothing at all. */
+  public Entity entity;
+
+  /** Returns true if the ray ran into anything. */
+  public boolean isHit() {
+    return fraction < 1;
+  }
+
+  void clear() {
+    fraction = 1;
+    entity = null;
+  }
+}
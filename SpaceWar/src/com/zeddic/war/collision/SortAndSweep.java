@@ -0,0 +1,322 @@
+package com.zeddic.war.collision;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.SimpleList;
+
+/**
+ * A broadphase that keeps entities sorted by their left edge. Anything that
+ * might touch a given range of x sits in one run of the sorted list, found
+ * with a binary search, no matter how tightly the entities are packed.
+ *
+ * <p>Entities move only a little between updates, so an entity that moved
+ * is put back in order by shifting it past the few neighbours it overtook,
+ * the same way an insertion sort would.
+ *
+ * <p>The sorted list holds body ids, with the bodies themselves kept in a
+ * {@link Bodies}, so a sweep along the list reads only primitive arrays
+ * until it finds a pair that actually touches.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class SortAndSweep implements Broadphase {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  /** Tracked bodies, sorted by their left edge. */
+  private int[] sorted = new int[INITIAL_CAPACITY];
+  private final Bodies bodies = new Bodies();
+
+  /**
+   * The left edge of each sorted entity when it was last updated. Kept in
+   * its own array so the searches don't have to visit each entity.
+   */
+  private float[] lefts = new float[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * The widest entity ever tracked. Anything overlapping a given x must
+   * have its left edge no further than this before it.
+   */
+  private float maxWidth;
+
+  private final SimpleList<CollideComponent> watchers =
+      SimpleList.create(CollideComponent.class, 16);
+
+  @Override
+  public void add(CollideComponent component) {
+    if (component.broadphase == this) {
+      remove(component);
+    }
+
+    if (size == sorted.length) {
+      grow();
+    }
+
+    Entity entity = component.entity;
+    bodies.add(component);
+    component.broadphase = this;
+    component.index = size;
+    sorted[size] = component.body;
+    lefts[size] = entity.left();
+    size++;
+    maxWidth = Math.max(maxWidth, entity.right() - entity.left());
+
+    resort(component);
+    notifyWatchers(entity);
+  }
+
+  @Override
+  public void remove(CollideComponent component) {
+    if (component.broadphase != this) {
+      return;
+    }
+
+    size--;
+    for (int i = component.index; i < size; i++) {
+      sorted[i] = sorted[i + 1];
+      lefts[i] = lefts[i + 1];
+      bodies.components[sorted[i]].index = i;
+    }
+    bodies.remove(component);
+    component.broadphase = null;
+  }
+
+  @Override
+  public void update(CollideComponent component) {
+    if (component.broadphase != this) {
+      add(component);
+      return;
+    }
+
+    bodies.sync(component);
+    Entity entity = component.entity;
+    lefts[component.index] = entity.left();
+    maxWidth = Math.max(maxWidth, entity.right() - entity.left());
+    resort(component);
+    notifyWatchers(entity);
+  }
+
+  /**
+   * Shifts a component whose left edge changed past any neighbours that are
+   * now out of order.
+   */
+  private void resort(CollideComponent component) {
+    int i = component.index;
+    float left = lefts[i];
+
+    while (i > 0 && lefts[i - 1] > left) {
+      sorted[i] = sorted[i - 1];
+      lefts[i] = lefts[i - 1];
+      bodies.components[sorted[i]].index = i;
+      i--;
+    }
+
+    while (i < size - 1 && lefts[i + 1] < left) {
+      sorted[i] = sorted[i + 1];
+      lefts[i] = lefts[i + 1];
+      bodies.components[sorted[i]].index = i;
+      i++;
+    }
+
+    sorted[i] = component.body;
+    lefts[i] = left;
+    component.index = i;
+  }
+
+  @Override
+  public void findContacts(CollideComponent component, Contacts contacts) {
+    Entity entity = component.entity;
+    float[] x = bodies.x;
+    float[] y = bodies.y;
+    float[] radius = bodies.radius;
+    int[] categories = bodies.categories;
+    int mask = component.getMask();
+    float right = entity.right();
+
+    for (int i = first(entity.left()); i < size && lefts[i] <= right; i++) {
+      int id = sorted[i];
+      if ((categories[id] & mask) == 0) {
+        continue;
+      }
+      
+      float dX = entity.x - x[id];
+      float dY = entity.y - y[id];
+      float minDistance = entity.radius + radius[id];
+      if (dX * dX + dY * dY < minDistance * minDistance && id != component.body) {
+        contacts.add(id, bodies.entity(id), dX, dY, minDistance);
+      }
+    }
+  }
+
+  @Override
+  public float sweep(CollideComponent component, float dX, float dY) {
+    Entity entity = component.entity;
+    float left = Math.min(entity.x, entity.x + dX) - entity.radius;
+    float right = Math.max(entity.x, entity.x + dX) + entity.radius;
+    float[] x = bodies.x;
+    float[] y = bodies.y;
+    float[] radius = bodies.radius;
+    int[] categories = bodies.categories;
+    int mask = component.getMask();
+
+    float first = 1;
+    for (int i = first(left); i < size && lefts[i] <= right; i++) {
+      int id = sorted[i];
+      if ((categories[id] & mask) == 0) {
+        continue;
+      }
+      
+      float time = Narrowphase.sweep(
+          entity.x - x[id], entity.y - y[id], entity.radius + radius[id], dX, dY);
+      if (time < first && id != component.body) {
+        first = time;
+      }
+    }
+    return first;
+  }
+
+  @Override
+  public void query(float x, float y, float radius, int layers, SimpleList<Entity> result) {
+    result.clear();
+
+    float right = x + radius;
+    for (int i = first(x - radius); i < size && lefts[i] <= right; i++) {
+      int id = sorted[i];
+      if ((bodies.categories[id] & layers) != 0 &&
+          Math.abs(bodies.y[id] - y) <= radius + bodies.radius[id]) {
+        result.append(bodies.entity(id));
+      }
+    }
+  }
+
+  /**
+   * Walks outward along the sorted list from the point in both directions
+   * at once. Each side stops once every entity further along must be
+   * further away in x alone than anything that would still be accepted.
+   */
+  @Override
+  public void nearest(float x, float y, Neighbours result) {
+    float maxRadius = maxWidth / 2;
+
+    int right = after(x);
+    int left = right - 1;
+    while (right < size || left >= 0) {
+      if (right < size) {
+        // Centers are never left of the left edge.
+        float gap = lefts[right] - x;
+        if (gap > 0 && !result.accepts(gap * gap)) {
+          right = size;
+        } else {
+          offer(sorted[right++], x, y, result);
+        }
+      }
+
+      if (left >= 0) {
+        // Nor further right of it than the widest entity's radius.
+        float gap = x - lefts[left] - maxRadius;
+        if (gap > 0 && !result.accepts(gap * gap)) {
+          left = -1;
+        } else {
+          offer(sorted[left--], x, y, result);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void raycast(float x0, float y0, float x1, float y1, int layers, RayHit hit) {
+    float dX = x1 - x0;
+    float dY = y1 - y0;
+    float right = Math.max(x0, x1);
+    for (int i = first(Math.min(x0, x1)); i < size && lefts[i] <= right; i++) {
+      int id = sorted[i];
+      if ((bodies.categories[id] & layers) == 0) {
+        continue;
+      }
+
+      float time = Narrowphase.raycast(
+          x0 - bodies.x[id], y0 - bodies.y[id], bodies.radius[id], dX, dY);
+      if (time < hit.fraction) {
+        hit.fraction = time;
+        hit.entity = bodies.entity(id);
+      }
+    }
+  }
+
+  private void offer(int id, float x, float y, Neighbours result) {
+    if ((bodies.categories[id] & result.layers) == 0) {
+      return;
+    }
+    float dX = bodies.x[id] - x;
+    float dY = bodies.y[id] - y;
+    float distanceSquared = dX * dX + dY * dY;
+    if (result.accepts(distanceSquared)) {
+      result.offer(bodies.entity(id), distanceSquared);
+    }
+  }
+
+  /** Returns the index of the first entity whose left edge is at or past x. */
+  private int after(float x) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (lefts[mid] < x) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first entity that could reach the given x,
+   * that is the first whose left edge is within the widest entity of it.
+   */
+  private int first(float x) {
+    return after(x - maxWidth);
+  }
+
+  /**
+   * Watches the square around the component's entity. Each watcher is
+   * checked against every entity that moves, so this suits a handful of
+   * sleeping entities rather than hundreds.
+   */
+  @Override
+  public void watch(CollideComponent component, float radius) {
+    component.watchRadius = radius;
+    watchers.add(component);
+  }
+
+  @Override
+  public void unwatch(CollideComponent component) {
+    watchers.remove(component);
+  }
+
+  private void notifyWatchers(Entity object) {
+    // Walk backwards; a watcher that wakes removes itself from the list.
+    for (int i = watchers.size - 1; i >= 0; i--) {
+      CollideComponent watcher = watchers.items[i];
+      float reach = watcher.watchRadius + object.radius;
+      if (Math.abs(watcher.entity.x - object.x) <= reach &&
+          Math.abs(watcher.entity.y - object.y) <= reach) {
+        Narrowphase.notifyWatcher(watcher, object);
+      }
+    }
+  }
+
+  @Override
+  public void endTick() {
+    bodies.endTick();
+  }
+  
+  private void grow() {
+    int[] newSorted = new int[sorted.length * 2];
+    float[] newLefts = new float[lefts.length * 2];
+    System.arraycopy(sorted, 0, newSorted, 0, size);
+    System.arraycopy(lefts, 0, newLefts, 0, size);
+    sorted = newSorted;
+    lefts = newLefts;
+  }
+}
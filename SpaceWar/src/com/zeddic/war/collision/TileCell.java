@@ -1,7 +1,6 @@
 package com.zeddic.war.collision;
 
 import com.zeddic.common.Entity;
-import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.collision.TileBounds.EdgeType;
 
 /**
@@ -18,10 +17,15 @@ public class TileCell {
   private float left;
   
   private TileGrid grid;
-  private EdgeType topEdge;
-  private EdgeType bottomEdge;
-  private EdgeType rightEdge;
-  private EdgeType leftEdge;
+  
+  /**
+   * The edges that can push an entity out of this tile. Edges shared with a
+   * neighbouring solid tile are left empty.
+   */
+  EdgeType topEdge;
+  EdgeType bottomEdge;
+  EdgeType rightEdge;
+  EdgeType leftEdge;
   private float size;
   
   int row;
@@ -70,6 +74,25 @@ public class TileCell {
         : bounds.rightEdge;
   }
 
+  /**
+   * Returns true if the tile blocks anything at all.
+   */
+  boolean isSolid() {
+    return active && !bounds.isEmpty();
+  }
+  
+  /**
+   * Returns true if the tile is only partly solid, such as a slope, and so
+   * needs its shape checked rather than just its edges.
+   */
+  boolean isShaped() {
+    return isSolid() && bounds != TileBounds.SOLID;
+  }
+  
+  TileBounds getBounds() {
+    return bounds;
+  }
+  
   /**
    * Returns true if the given entity intersects with this tile.
    */
@@ -84,65 +107,54 @@ public class TileCell {
         || entity.bottom() < top());
   }
   
-  public boolean collide(Entity entity) {
-    
+  /**
+   * Returns how far through the move (dX, dY) the entity first overlaps
+   * this tile by more than {@link Narrowphase#TOUCHING}, as a fraction from
+   * 0 to 1. Returns 1 if the move never does, or if the entity already
+   * overlaps it by more, which is left to {@link TileEdges}. An entity
+   * resting against the tile can slide along it, but moving into it is a
+   * hit almost at once.
+   */
+  public float sweep(Entity entity, float dX, float dY) {
     if (!active || bounds.isEmpty()) {
-      return false;
-    }
-    
-    if (left() >= entity.right() || right() <= entity.left()) {
-      return false;
+      return 1;
     }
-    
-    if (top() >= entity.bottom() || bottom() <= entity.top()) {
-      return false;
-    }
-    
-    return collideWithEdges(entity);
-  }
 
-  Vector2d projection = new Vector2d();
-  private boolean collideWithEdges(Entity entity) {
-    projection.x = Float.MAX_VALUE;
-    projection.y = Float.MAX_VALUE;
-    boolean hit = false;
-    
-    if (bottomEdge == EdgeType.SOLID && entity.top() < bottom() && entity.top() > top()) {
-      determineShorterProjection(projection, 0, bottom() - entity.top());
-      hit = true;
-    }
-    
-    if (topEdge == EdgeType.SOLID && entity.bottom() > top() && entity.bottom() < bottom()) {
-      determineShorterProjection(projection, 0, top() - entity.bottom());
-      hit = true;
-    }
-    
-    if (leftEdge == EdgeType.SOLID && entity.right() > left() && entity.right() < right()) {
-      determineShorterProjection(projection, left() - entity.right(), 0);
-      hit = true;
-    }
-    
-    if (rightEdge == EdgeType.SOLID && entity.left() < right() && entity.left() > left()) {
-      determineShorterProjection(projection, right() - entity.left(), 0);
-      hit = true;
+    // Grow the tile by the entity's radius so the entity can be treated as
+    // a single point travelling along the move, then find when that point
+    // is inside the tile's range on both axes.
+    float radius = entity.radius - Narrowphase.TOUCHING;
+    float entry = 0;
+    float exit = 1;
+
+    if (dX == 0) {
+      if (entity.x <= left() - radius || entity.x >= right() + radius) {
+        return 1;
+      }
+    } else {
+      float near = (left() - radius - entity.x) / dX;
+      float far = (right() + radius - entity.x) / dX;
+      entry = Math.max(entry, Math.min(near, far));
+      exit = Math.min(exit, Math.max(near, far));
     }
-    
-    if (hit) {
-      entity.x += projection.x;
-      entity.y += projection.y;
-      entity.collide(null, projection, false);
+
+    if (dY == 0) {
+      if (entity.y <= top() - radius || entity.y >= bottom() + radius) {
+        return 1;
+      }
+    } else {
+      float near = (top() - radius - entity.y) / dY;
+      float far = (bottom() + radius - entity.y) / dY;
+      entry = Math.max(entry, Math.min(near, far));
+      exit = Math.min(exit, Math.max(near, far));
     }
-    
-    return hit;
-  }
 
-  private void determineShorterProjection(Vector2d projection, float dX, float dY) {
-    if (Math.abs(dX + dY) < Math.abs(projection.x + projection.y)) {
-      projection.x = dX;
-      projection.y = dY;
+    if (entry <= 0 || entry >= exit) {
+      return 1;
     }
+    return entry;
   }
-    
+
   public float top() {
     return top;
   }
@@ -0,0 +1,240 @@
+package com.zeddic.war.collision;
+
+import java.util.Arrays;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.Vector2d;
+import com.zeddic.war.collision.TileBounds.EdgeType;
+
+/**
+ * The solid edges of a tile map, merged into the longest straight runs
+ * possible. A floor twenty tiles wide is one edge rather than twenty, so an
+ * entity resting on it tests a single edge and never catches on the seams
+ * between the tiles.
+ *
+ * <p>Edges are built once from the edges each {@link TileCell} works out
+ * when the level loads, and are kept by the row or column of the cells they
+ * face into. An entity can only be pushed out by an edge whose cells hold
+ * its own matching side, so each side of the entity looks in exactly one
+ * row or column.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+final class TileEdges {
+
+  /**
+   * The most times an entity is pushed in one check. Two is enough to push
+   * it out of a floor and a wall at once, and a third clears one that steps
+   * diagonally between tiles, where the shortest push first takes it into
+   * another.
+   */
+  private static final int MAX_PUSHES = 3;
+
+  /**
+   * How far a side must be past an edge before it is pushed back out. A
+   * push can leave a side a rounding error past another edge, and pushing
+   * it back by less than the entity's position can change would use up a
+   * push without moving it. Less than the depth a swept entity is placed
+   * at, so that contact is still seen.
+   */
+  static final float SLOP = 0.001f;
+
+  private final float size;
+
+  /**
+   * The top edges of the solid cells in each row, the bottom edges in each
+   * row, and the left and right edges in each column.
+   */
+  private final Side tops;
+  private final Side bottoms;
+  private final Side lefts;
+  private final Side rights;
+
+  /** The push worked out by the last call to findProjection. */
+  final Vector2d projection = new Vector2d();
+
+  TileEdges(TileCell[][] grid, int rows, int cols, float size) {
+    this.size = size;
+    tops = new Side(rows, cols, size);
+    bottoms = new Side(rows, cols, size);
+    lefts = new Side(cols, rows, size);
+    rights = new Side(cols, rows, size);
+
+    EdgeType[] line = new EdgeType[Math.max(rows, cols)];
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        line[col] = grid[row][col].topEdge;
+      }
+      tops.merge(row, line);
+
+      for (int col = 0; col < cols; col++) {
+        line[col] = grid[row][col].bottomEdge;
+      }
+      bottoms.merge(row, line);
+    }
+
+    for (int col = 0; col < cols; col++) {
+      for (int row = 0; row < rows; row++) {
+        line[row] = grid[row][col].leftEdge;
+      }
+      lefts.merge(col, line);
+
+      for (int row = 0; row < rows; row++) {
+        line[row] = grid[row][col].rightEdge;
+      }
+      rights.merge(col, line);
+    }
+  }
+
+  /**
+   * Pushes an entity out of any solid edge it has crossed, adding an event
+   * for each push. Each time, the entity is pushed the shortest way out
+   * of any edge it crossed, and then checked again from where it ends up,
+   * so an entity in a corner is pushed clear of both sides.
+   */
+  boolean collide(Entity entity, CollisionEvents events) {
+    boolean hit = false;
+    for (int i = 0; i < MAX_PUSHES; i++) {
+      if (!findProjection(entity)) {
+        break;
+      }
+
+      entity.x += projection.x;
+      entity.y += projection.y;
+      events.add(entity, null, projection.x, projection.y, false);
+      hit = true;
+    }
+    return hit;
+  }
+
+  /**
+   * Works out the shortest push out of the edges the entity has crossed.
+   * A side of the entity has crossed an edge if it lies inside the cells
+   * beyond the edge and overlaps the edge along its length, in both cases
+   * by more than the slop.
+   */
+  boolean findProjection(Entity entity) {
+    projection.x = Float.MAX_VALUE;
+    projection.y = Float.MAX_VALUE;
+    boolean hit = false;
+
+    float top = entity.top() + SLOP;
+    float bottom = entity.bottom() - SLOP;
+    float left = entity.left() + SLOP;
+    float right = entity.right() - SLOP;
+    int minRow = gridValue(top);
+    int maxRow = gridValue(bottom);
+    int minCol = gridValue(left);
+    int maxCol = gridValue(right);
+
+    if (bottom > maxRow * size && tops.crosses(maxRow, minCol, right)) {
+      determineShorterProjection(0, maxRow * size - entity.bottom());
+      hit = true;
+    }
+
+    if (top > minRow * size && bottoms.crosses(minRow, minCol, right)) {
+      determineShorterProjection(0, (minRow + 1) * size - entity.top());
+      hit = true;
+    }
+
+    if (right > maxCol * size && lefts.crosses(maxCol, minRow, bottom)) {
+      determineShorterProjection(maxCol * size - entity.right(), 0);
+      hit = true;
+    }
+
+    if (left > minCol * size && rights.crosses(minCol, minRow, bottom)) {
+      determineShorterProjection((minCol + 1) * size - entity.left(), 0);
+      hit = true;
+    }
+
+    return hit;
+  }
+
+  private void determineShorterProjection(float dX, float dY) {
+    if (Math.abs(dX + dY) < Math.abs(projection.x + projection.y)) {
+      projection.x = dX;
+      projection.y = dY;
+    }
+  }
+
+  private int gridValue(float rawValue) {
+    return (int) Math.floor(rawValue / size);
+  }
+
+  /**
+   * The merged edges facing one way, for every row or every column of the
+   * grid.
+   */
+  private static final class Side {
+
+    private static final float[] NONE = new float[0];
+
+    private final float size;
+
+    /**
+     * The edges along each row or column, as pairs of where each edge
+     * starts and ends, in order.
+     */
+    private final float[][] edges;
+
+    /**
+     * For each cell, the index of the first edge in its row or column that
+     * ends past the start of the cell. The edges are in order and never
+     * overlap, so this is the only edge that could reach a range starting
+     * in the cell.
+     */
+    private final int[][] next;
+
+    Side(int lines, int length, float size) {
+      this.size = size;
+      edges = new float[lines][];
+      next = new int[lines][length];
+    }
+
+    /**
+     * Merges each run of solid edges along a row or column of cells into
+     * one edge.
+     */
+    void merge(int index, EdgeType[] line) {
+      int[] next = this.next[index];
+      int length = next.length;
+      float[] runs = new float[length + 1];
+      int count = 0;
+      int start = -1;
+      for (int i = 0; i <= length; i++) {
+        boolean solid = i < length && line[i] == EdgeType.SOLID;
+        if (solid && start < 0) {
+          start = i;
+        } else if (!solid && start >= 0) {
+          runs[count++] = start * size;
+          runs[count++] = i * size;
+          start = -1;
+        }
+      }
+      edges[index] = count == 0 ? NONE : Arrays.copyOf(runs, count);
+
+      int edge = 0;
+      for (int i = 0; i < length; i++) {
+        while (edge * 2 < count && runs[edge * 2 + 1] <= i * size) {
+          edge++;
+        }
+        next[i] = edge;
+      }
+    }
+
+    /**
+     * Returns true if any edge in the given row or column overlaps the
+     * range that starts in the given cell and ends at max. Edges that only
+     * meet the range at an end don't count.
+     */
+    boolean crosses(int index, int cell, float max) {
+      if (index < 0 || index >= edges.length || cell >= next[index].length) {
+        return false;
+      }
+
+      float[] runs = edges[index];
+      int edge = next[index][Math.max(0, cell)] * 2;
+      return edge < runs.length && runs[edge] < max;
+    }
+  }
+}
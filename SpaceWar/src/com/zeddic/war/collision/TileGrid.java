@@ -1,6 +1,7 @@
 package com.zeddic.war.collision;
 
 import com.zeddic.common.Entity;
+import com.zeddic.common.util.Shape;
 import com.zeddic.war.level.Level;
 import com.zeddic.war.level.LevelTile;
 import com.zeddic.war.level.TileType;
@@ -16,6 +17,16 @@ public class TileGrid {
   private final int cols;
   private final int rows;
 	private TileCell[][] grid;
+	final TileEdges edges;
+	
+	/**
+	 * The shape of each kind of tile, scaled to the size of a cell, and how
+	 * many tiles there are that need their shape checked.
+	 */
+	private final Shape[] shapes = new Shape[TileBounds.values().length];
+	private int shapedTiles;
+	private final SeparatingAxes separatingAxes = new SeparatingAxes();
+	private final GridWalk walk = new GridWalk();
 	
 	public TileGrid(Level level) {
 	  this.size = Level.TILE_SIZE;
@@ -30,13 +41,25 @@ public class TileGrid {
         
         LevelTile tile = level.getTile(row, col);
         if (tile != null && tile.getType() != TileType.EMPTY) {
-          cell.setBounds(TileBounds.SOLID);
+          cell.setBounds(tile.getType().bounds);
+          if (cell.isShaped()) {
+            shapedTiles++;
+          }
         }
         grid[row][col] = cell;
       }
     }
 
 		calculateEdges();
+		edges = new TileEdges(grid, rows, cols, size);
+		
+		for (TileBounds bounds : TileBounds.values()) {
+		  if (!bounds.isEmpty()) {
+		    Shape shape = bounds.shape.copy();
+		    bounds.shape.transform(0, size, shape);
+		    shapes[bounds.ordinal()] = shape;
+		  }
+		}
 	}
 	
 	private void calculateEdges() {
@@ -48,29 +71,95 @@ public class TileGrid {
 	}
 	
 	/**
-	 * Collide a entity with any tiles in it's area.
+	 * Collide a entity with any tiles in it's area. Only the few merged
+	 * edges next to the entity's sides are checked, however many cells it
+	 * covers. Tiles that are only partly solid, if the level has any, then
+	 * have their shapes checked. The entity hears about any hits once the
+	 * events are dispatched.
 	 */
-	public boolean collide(CollideComponent component) {	 
+	boolean collide(CollideComponent component, CollisionEvents events) {	 
+	  boolean hit = edges.collide(component.entity, events);
+	  if (shapedTiles > 0) {
+	    hit = collideShapes(component, events) || hit;
+	  }
+	  return hit;
+	}
+	
+	/**
+	 * Pushes an entity out of the shapes of any partly solid tiles it
+	 * overlaps.
+	 */
+	private boolean collideShapes(CollideComponent component, CollisionEvents events) {
 	  Entity entity = component.entity;
 	  
-    int minCol = gridValue(entity.left());
-    int maxCol = gridValue(entity.right());
-    int minRow = gridValue(entity.top());
-    int maxRow = gridValue(entity.bottom());
- 
-    boolean hit = false;
-    
-    for (int row = minRow; row <= maxRow; row++) {
-      for(int col = minCol; col <= maxCol; col++) {
-        if (row >= 0 && row < rows && col >= 0 && col < cols) {
-          hit = grid[row][col].collide(entity) || hit;
+	  int minCol = Math.max(0, gridValue(entity.left()));
+	  int maxCol = Math.min(cols - 1, gridValue(entity.right()));
+	  int minRow = Math.max(0, gridValue(entity.top()));
+	  int maxRow = Math.min(rows - 1, gridValue(entity.bottom()));
+	  
+	  boolean hit = false;
+	  for (int row = minRow; row <= maxRow; row++) {
+	    for (int col = minCol; col <= maxCol; col++) {
+	      TileCell cell = grid[row][col];
+	      if (cell.isShaped() && separatingAxes.collide(
+	          component, shapes[cell.getBounds().ordinal()], cell.left(), cell.top())) {
+	        entity.x += separatingAxes.projection.x;
+	        entity.y += separatingAxes.projection.y;
+	        events.add(entity, null,
+	            separatingAxes.projection.x, separatingAxes.projection.y, false);
+	        hit = true;
+	      }
+	    }
+	  }
+	  return hit;
+	}
+	
+  /**
+   * Returns how far through the move (dX, dY) the entity first touches a
+   * tile, as a fraction from 0 to 1, or 1 if it touches none. Only the cells
+   * along the move's path are checked, visited in order from the start of
+   * the move, so the cost depends on the distance moved rather than on how
+   * many tiles there are.
+   */
+  public float sweep(CollideComponent component, float dX, float dY) {
+    Entity entity = component.entity;
+
+    // Walk the cells the entity's center passes through. Anything the
+    // entity's edge could touch is at most this many cells to the side.
+    int reach = (int) Math.ceil(entity.radius / size);
+    walk.start(entity.x, entity.y, entity.x + dX, entity.y + dY, size);
+
+    float first = 1;
+    do {
+      for (int r = walk.row - reach; r <= walk.row + reach; r++) {
+        for (int c = walk.col - reach; c <= walk.col + reach; c++) {
+          if (r >= 0 && r < rows && c >= 0 && c < cols) {
+            first = Math.min(first, grid[r][c].sweep(entity, dX, dY));
+          }
         }
       }
-    }
+    } while (walk.next() && walk.entered < first);
+
+    return first;
+  }
+
+  /**
+   * Returns how far along the line from (x0, y0) to (x1, y1), from 0 to 1,
+   * it first enters a solid tile, or 1 if the line is clear. Only the cells
+   * the line passes through are visited, in order from its start. A tile
+   * that is only partly solid blocks the whole of its cell.
+   */
+  public float raycast(float x0, float y0, float x1, float y1) {
+    walk.start(x0, y0, x1, y1, size);
+    do {
+      TileCell cell = get(walk.row, walk.col);
+      if (cell != null && cell.isSolid()) {
+        return walk.entered;
+      }
+    } while (walk.next());
+    return 1;
+  }
 
-    return hit;
-	}
-	
 	 /**
    * Returns true if the selected entity is currently touching
    * any tile. Does not actually perform any collision resolution.
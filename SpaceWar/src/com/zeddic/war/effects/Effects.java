@@ -1,8 +1,7 @@
 package com.zeddic.war.effects;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.util.ObjectStockpile;
 import com.zeddic.common.util.Vector2d;
 
@@ -80,8 +79,8 @@ public class Effects extends AbstractGameObject {
   }
   
   @Override
-  public void draw(GL10 gl) {
-    stockpile.draw(gl);
+  public void snapshot(RenderSnapshot snapshot) {
+    stockpile.snapshot(snapshot);
   }
   
   @Override
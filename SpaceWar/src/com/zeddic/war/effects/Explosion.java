@@ -1,9 +1,8 @@
 package com.zeddic.war.effects;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.particle.ParticleEmitter;
 import com.zeddic.common.particle.ParticleEmitter.ParticleEmitterBuilder;
@@ -52,8 +51,8 @@ public class Explosion extends Entity {
   }
   
   @Override
-  public void draw(GL10 gl) {
-    emitter.draw(gl);
+  public void snapshot(RenderSnapshot snapshot) {
+    emitter.snapshot(snapshot);
   }
   
   @Override
@@ -1,12 +1,11 @@
 package com.zeddic.war.guns;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
-import com.zeddic.common.opengl.SimpleGeometry;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.collision.CollideBehavior;
+import com.zeddic.war.collision.CollisionLayers;
 import com.zeddic.war.effects.Effects;
 import com.zeddic.war.ships.EnemyShip;
 
@@ -25,6 +24,7 @@ public class Bullet extends Entity {
   public Bullet(float x, float y) {
     super(x, y);
     this.collide.setBehavior(CollideBehavior.HIT_ONLY);
+    this.collide.setMask(CollisionLayers.SCENERY | CollisionLayers.ENEMY_SHIPS);
     this.life = 0;
     this.maxLife = DEFAULT_MAX_LIFE;
   }
@@ -41,11 +41,11 @@ public class Bullet extends Entity {
   }
 
   @Override
-  public void draw(GL10 gl) {
-    SimpleGeometry.drawLine(
-        gl,
-        x + velocity.x / 40, y + velocity.y / 40 ,
-        x - velocity.x / 40, y - velocity.y / 40,
+  public void snapshot(RenderSnapshot snapshot) {
+    snapshot.addLine(
+        this,
+        velocity.x / 40, velocity.y / 40,
+        -velocity.x / 40, -velocity.y / 40,
         color);
   }
   
@@ -67,7 +67,10 @@ public class Bullet extends Entity {
   public void collide(Entity other, Vector2d avoidVector, boolean recieving) {
     Effects.get().hit(x, y, avoidVector);
     
-    if (other instanceof EnemyShip) {
+    // Entities that keep the default layers are in every one of them, so
+    // check the type as well as the layer.
+    if (other instanceof EnemyShip && 
+        (other.collide.getCategory() & CollisionLayers.ENEMY_SHIPS) != 0) {
       ((EnemyShip) other).hit(10);
     }
     kill();
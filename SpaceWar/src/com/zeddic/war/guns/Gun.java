@@ -1,10 +1,9 @@
 package com.zeddic.war.guns;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.GameObject;
 import com.zeddic.common.util.Countdown;
+import com.zeddic.common.util.GameClock;
 import com.zeddic.war.GameState;
 import com.zeddic.war.guns.control.GunControl;
 
@@ -60,7 +59,7 @@ public class Gun implements GameObject {
       return;
     }
 
-    long now = System.currentTimeMillis();
+    long now = GameClock.now();
     long passedTime = now - lastFire;
     if (passedTime > fireCooldown) {
       long timesToFire = (fireCooldown == 0 ? clipCount : passedTime / fireCooldown);
@@ -105,13 +104,8 @@ public class Gun implements GameObject {
     }
   }
   
-  @Override
-  public void draw(GL10 gl) {
-    // Nothing to draw.
-  }
-  
   public void reset() {
-    lastFire = System.currentTimeMillis();
+    lastFire = GameClock.now();
     reloading = false;
     clipCount = clipSize;
   }
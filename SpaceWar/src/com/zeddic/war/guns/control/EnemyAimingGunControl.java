@@ -17,18 +17,40 @@
 package com.zeddic.war.guns.control;
 
 import com.zeddic.common.Entity;
+import com.zeddic.common.util.GameClock;
+import com.zeddic.common.util.SimpleList;
 import com.zeddic.common.util.Vector2d;
+import com.zeddic.war.collision.CollisionLayers;
+import com.zeddic.war.collision.CollisionSystem;
 import com.zeddic.war.collision.ProximityUtil;
 import com.zeddic.war.guns.Gun;
-import com.zeddic.war.ships.Square;
 
+/**
+ * Aims at the closest enemy within range that isn't hidden behind solid
+ * tiles.
+ * 
+ * <p>Guns ask whether to fire on every update, so looking for the closest
+ * enemy each time adds up quickly across a fleet. Instead, a target is kept
+ * until it dies, leaves range or goes out of sight, even if a closer enemy
+ * comes along. Checking that only takes a distance test and a raycast over
+ * the few tiles in between. Without a target, a new search is made at most
+ * once every {@link #SEARCH_INTERVAL} milliseconds.
+ */
 public class EnemyAimingGunControl implements GunControl {
 
+  /** The fewest milliseconds of game time between searches for a target. */
+  private static final long SEARCH_INTERVAL = 100;
+  
+  /** How many of the closest enemies to check for one in sight. */
+  private static final int CANDIDATES = 4;
+  
   private final Vector2d aimVector = new Vector2d();
   private final Entity owner;
   private float range;
   
   private Entity target = null;
+  private long lastSearch = -SEARCH_INTERVAL;
+  private int searches;
 
   public EnemyAimingGunControl(Entity owner, float range) {
     this.owner = owner;
@@ -37,10 +59,58 @@ public class EnemyAimingGunControl implements GunControl {
 
   @Override
   public boolean shouldFire(Gun gun) {
-    target = ProximityUtil.getClosest(Square.class, owner.x, owner.y, range);
+    if (target != null && !(inRange(target) && inSight(target))) {
+      target = null;
+    }
+    
+    // The clock goes back to zero when a new level is loaded.
+    long now = GameClock.now();
+    if (target == null && (now - lastSearch >= SEARCH_INTERVAL || now < lastSearch)) {
+      target = findTarget();
+      lastSearch = now;
+      searches++;
+    }
     return target != null;
   }
   
+  /** Returns the closest enemy in range and in sight, or null if none is. */
+  private Entity findTarget() {
+    SimpleList<Entity> enemies = ProximityUtil.getNearest(
+        CollisionLayers.ENEMY_SHIPS, owner.x, owner.y, range, CANDIDATES);
+    for (int i = 0; i < enemies.size; i++) {
+      if (inSight(enemies.items[i])) {
+        return enemies.items[i];
+      }
+    }
+    return null;
+  }
+  
+  private boolean inRange(Entity enemy) {
+    float dX = enemy.x - owner.x;
+    float dY = enemy.y - owner.y;
+    return enemy.enabled && dX * dX + dY * dY <= range * range;
+  }
+  
+  private boolean inSight(Entity enemy) {
+    return CollisionSystem.get().isLineClear(owner.x, owner.y, enemy.x, enemy.y);
+  }
+  
+  /**
+   * Returns the enemy being aimed at as of the last call to shouldFire(),
+   * or null if there was none within range.
+   */
+  public Entity getTarget() {
+    return target;
+  }
+  
+  /**
+   * Returns how many searches for a target have been made so far. Comparing
+   * two counts tells whether a search was made in between.
+   */
+  public int getSearchCount() {
+    return searches;
+  }
+  
   @Override
   public void aim(Gun gun) {
     if (target == null) {
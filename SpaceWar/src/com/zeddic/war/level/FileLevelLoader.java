@@ -5,9 +5,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
-import android.util.Log;
-
-import com.zeddic.common.util.ResourceLoader;
+import com.zeddic.common.platform.Log;
+import com.zeddic.common.platform.Platform;
+import com.zeddic.war.collision.BroadphaseType;
 import com.zeddic.war.level.Level.LevelBuilder;
 
 
@@ -20,28 +20,33 @@ public class FileLevelLoader implements LevelLoader {
   private static final String MAP_LINE_END = "]";
   private static final String PROPERTY_ROWS = "Rows";
   private static final String PROPERTY_COLS = "Cols";
+  private static final String PROPERTY_BROADPHASE = "Broadphase";
   
   
   @Override
   public Level load(String file) {
 
-    Level loadedLevel = null;
-    
     try {
-      InputStream inputStream = ResourceLoader.loadAsset(file);
-      
+      return load(Platform.get().openAsset(file));
+    } catch (IOException e) {
+      Log.e(this.getClass().toString(), "Unable to load level file");
+      throw new RuntimeException("Unable to load level! Aborting!");
+    }
+  }
+  
+  /**
+   * Loads a level from an already opened stream, such as a file outside of
+   * the assets directory. The stream is closed once read.
+   */
+  public Level load(InputStream inputStream) throws IOException {
+    try {
       InputStreamReader inputReader = new InputStreamReader(inputStream);
       BufferedReader reader = new BufferedReader(inputReader);
       
-      loadedLevel = parseMap(reader);
-
+      return parseMap(reader);
+    } finally {
       inputStream.close();
-    } catch (IOException e) {
-      Log.e(this.getClass().toString(), "Unable to load level file");
-      throw new RuntimeException("Unable to load level! Aborting!");
     }
-    
-    return loadedLevel;
   }
   
   private String getValue(BufferedReader reader, String propName) throws IOException {
@@ -82,6 +87,8 @@ public class FileLevelLoader implements LevelLoader {
         rows = parseInt(prop.value);
       } else if (prop.name.equalsIgnoreCase(PROPERTY_COLS)) {
         cols = parseInt(prop.value);
+      } else if (prop.name.equalsIgnoreCase(PROPERTY_BROADPHASE)) {
+        loadedLevelBuilder.withBroadphase(parseBroadphase(prop.value));
       }
       else if (prop.name.equalsIgnoreCase(PROPERTY_TILES)) {
         if (rows == 0 || cols == 0) {
@@ -243,6 +250,19 @@ public class FileLevelLoader implements LevelLoader {
     }
   }
   
+  /**
+   * Parses a broadphase type from a name such as 'SortAndSweep'. Returns
+   * the grid on error.
+   */
+  private BroadphaseType parseBroadphase(String value) {
+    for (BroadphaseType type : BroadphaseType.values()) {
+      if (type.name().replace("_", "").equalsIgnoreCase(value.trim())) {
+        return type;
+      }
+    }
+    return BroadphaseType.GRID;
+  }
+  
   private class SimpleProperty {
     public final String name;
     public final String value;
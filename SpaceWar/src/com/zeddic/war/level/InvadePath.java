@@ -8,6 +8,7 @@ import javax.microedition.khronos.opengles.GL10;
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.opengl.Color;
 import com.zeddic.common.opengl.Path;
+import com.zeddic.common.opengl.Renderable;
 import com.zeddic.common.util.SimpleList;
 import com.zeddic.common.util.Vector2d;
 
@@ -16,7 +17,7 @@ import com.zeddic.common.util.Vector2d;
  * 
  * @author Scott Bailey
  */
-public class InvadePath extends AbstractGameObject {
+public class InvadePath extends AbstractGameObject implements Renderable {
 
   private static final Color color = new Color(214, 214, 214, 255);
   public SimpleList<Vector2d> points = SimpleList.create(Vector2d.class);
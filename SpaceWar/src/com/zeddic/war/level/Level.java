@@ -3,19 +3,23 @@ package com.zeddic.war.level;
 import javax.microedition.khronos.opengles.GL10;
 
 import com.zeddic.common.GameObject;
+import com.zeddic.common.opengl.Renderable;
+import com.zeddic.war.collision.BroadphaseType;
 
-public class Level implements GameObject {
+public class Level implements GameObject, Renderable {
 
   public static final int TILE_SIZE = 32;
   private final LevelTile[][] grid;
   public Map map;
   private int rows;
   private int cols;
+  private BroadphaseType broadphase;
   
   public Level(LevelBuilder builder) {
     this.rows = builder.rows;
     this.cols = builder.cols;
     this.grid = builder.grid;
+    this.broadphase = builder.broadphase;
     map = new Map(rows, cols);
   }
   
@@ -71,6 +75,19 @@ public class Level implements GameObject {
     return map.height;
   }
   
+  /** Returns how the collision system should track entities in this level. */
+  public BroadphaseType getBroadphase() {
+    return broadphase;
+  }
+  
+  /**
+   * Changes how the collision system tracks entities in this level. Only
+   * takes effect when the level is next loaded into the world.
+   */
+  public void setBroadphase(BroadphaseType broadphase) {
+    this.broadphase = broadphase;
+  }
+  
   public LevelTile getTile(int row, int col) {
     if (row < 0 || row >= rows || col < 0 || col >= cols) {
       return null;
@@ -113,9 +130,14 @@ public class Level implements GameObject {
     private LevelTile[][] grid;
     private int rows;
     private int cols;
+    private BroadphaseType broadphase = BroadphaseType.GRID;
     
 
     public LevelBuilder() {}
+    
+    public void withBroadphase(BroadphaseType broadphase) {
+      this.broadphase = broadphase;
+    }
 
     public void withGridSize(int rows, int cols) {
       this.rows = rows + BUFFER * 2;
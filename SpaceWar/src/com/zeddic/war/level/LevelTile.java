@@ -4,6 +4,7 @@ import javax.microedition.khronos.opengles.GL10;
 
 import com.zeddic.common.GameObject;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.Renderable;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.war.R;
 
@@ -12,7 +13,7 @@ import com.zeddic.war.R;
  * 
  * @author baileys (Scott Bailey)
  */
-public class LevelTile implements GameObject {  
+public class LevelTile implements GameObject, Renderable {  
 
   private static final Sprite solid = new Sprite(32, 32, R.drawable.border);
   private static final Sprite blue = new Sprite(32, 32, R.drawable.solid);
@@ -20,13 +20,14 @@ import javax.microedition.khronos.opengles.GL10;
 
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.Renderable;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.util.Countdown;
 import com.zeddic.war.GameState;
 import com.zeddic.war.R;
 import com.zeddic.war.ships.Square;
 
-public class Map extends AbstractGameObject {
+public class Map extends AbstractGameObject implements Renderable {
   
   private static final float EDGE_BUFFER = 0;
   public int rows;
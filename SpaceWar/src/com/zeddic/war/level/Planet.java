@@ -4,13 +4,15 @@ import javax.microedition.khronos.opengles.GL10;
 
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.Renderable;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.util.Components;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.R;
 import com.zeddic.war.collision.CollideBehavior;
+import com.zeddic.war.collision.CollisionLayers;
 
-public class Planet extends Entity {
+public class Planet extends Entity implements Renderable {
   
   private static final Sprite sprite = new Sprite(128, 128, R.drawable.planet);
   private Components components = new Components();
@@ -31,6 +33,7 @@ public class Planet extends Entity {
     this.radius = 50;
     this.enabled = true;
     this.collide.setBehavior(CollideBehavior.RECEIVE_ONLY);
+    this.collide.setCategory(CollisionLayers.SCENERY);
   }
 
   public void reset() {
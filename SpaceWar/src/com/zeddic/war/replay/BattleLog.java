@@ -0,0 +1,282 @@
+package com.zeddic.war.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import com.zeddic.common.util.SimpleList;
+
+/**
+ * A record of everything needed to play a battle again exactly as it
+ * happened: the level, the random seed, the tick length, and every command
+ * the player gave along with the tick it was given on.
+ *
+ * <p>The log also holds periodic keyframes, each a checksum of the world's
+ * state at a given tick. A replay compares against these as it goes to catch
+ * the moment it stops matching the original battle.
+ *
+ * <p>Logs are written as plain text in the same "Name:Value" style as level
+ * files:
+ * <code>
+ * Level:levels/1.txt
+ * Seed:1234
+ * TickLength:20
+ * KeyframeInterval:250
+ * Command:120,SPAWN,-1,300.5,122.0,0.0
+ * Command:121,VIEW,-1,320.0,160.0,640.0
+ * Keyframe:250,-1630279318
+ * </code>
+ *
+ * <p>Each command is its tick, type, index, x, y and radius. Commands
+ * without an index or a radius record -1 and 0 for them. Logs written
+ * before commands had a radius leave it off, and their VIEW commands keep
+ * the radius in the index instead.
+ *
+ * <p>A log is usually filled on the simulation thread while being saved from
+ * another, so all access is synchronized.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class BattleLog {
+
+  public static final int DEFAULT_KEYFRAME_INTERVAL = 250;
+
+  private static final String PROPERTY_SEPERATOR = ":";
+  private static final String VALUE_SEPERATOR = ",";
+  private static final String PROPERTY_LEVEL = "Level";
+  private static final String PROPERTY_SEED = "Seed";
+  private static final String PROPERTY_TICK_LENGTH = "TickLength";
+  private static final String PROPERTY_KEYFRAME_INTERVAL = "KeyframeInterval";
+  private static final String PROPERTY_COMMAND = "Command";
+  private static final String PROPERTY_KEYFRAME = "Keyframe";
+
+  /** The kinds of command a player may give. */
+  public enum CommandType {
+    /** Places a new fighter at a location. */
+    SPAWN,
+
+    /** Sends a fighter, identified by its pool index, to a location. */
+    MOVE,
+
+    /** Drags an existing target, identified by its index, to a location. */
+    DRAG,
+
+    /**
+     * Moves the area the player is watching, which decides how often
+     * distant ships are updated, to the circle at a location with the
+     * given radius.
+     */
+    VIEW
+  }
+
+  /** The level file the battle was played on. */
+  public final String levelId;
+  public final long seed;
+  public final long tickLength;
+  public final int keyframeInterval;
+
+  private final SimpleList<Command> commands = SimpleList.create(Command.class);
+  private final SimpleList<Keyframe> keyframes = SimpleList.create(Keyframe.class);
+  private long length;
+
+  public BattleLog(String levelId, long seed, long tickLength) {
+    this(levelId, seed, tickLength, DEFAULT_KEYFRAME_INTERVAL);
+  }
+
+  public BattleLog(String levelId, long seed, long tickLength, int keyframeInterval) {
+    this.levelId = levelId;
+    this.seed = seed;
+    this.tickLength = tickLength;
+    this.keyframeInterval = keyframeInterval;
+  }
+
+  /**
+   * Records a command given right before the given tick was simulated.
+   */
+  public synchronized void addCommand(long tick, CommandType type, int index, float x, float y) {
+    addCommand(tick, type, index, x, y, 0);
+  }
+
+  /**
+   * Records a command that covers an area, given right before the given
+   * tick was simulated.
+   */
+  public synchronized void addCommand(
+      long tick, CommandType type, int index, float x, float y, float radius) {
+    commands.add(new Command(tick, type, index, x, y, radius));
+    length = Math.max(length, tick);
+  }
+
+  /**
+   * Records the checksum of the world's state right after the given tick
+   * was simulated.
+   */
+  public synchronized void addKeyframe(long tick, int checksum) {
+    keyframes.add(new Keyframe(tick, checksum));
+    length = Math.max(length, tick);
+  }
+
+  public synchronized int getCommandCount() {
+    return commands.size;
+  }
+
+  public synchronized Command getCommand(int i) {
+    return commands.items[i];
+  }
+
+  public synchronized int getKeyframeCount() {
+    return keyframes.size;
+  }
+
+  public synchronized Keyframe getKeyframe(int i) {
+    return keyframes.items[i];
+  }
+
+  /**
+   * Returns the last tick anything was recorded on, which is how many ticks
+   * a replay must run to cover the whole battle.
+   */
+  public synchronized long getLength() {
+    return length;
+  }
+
+  /**
+   * Writes the log as text. The stream is left open.
+   */
+  public synchronized void write(OutputStream outputStream) {
+    PrintWriter writer = new PrintWriter(new OutputStreamWriter(outputStream));
+    writer.println(PROPERTY_LEVEL + PROPERTY_SEPERATOR + levelId);
+    writer.println(PROPERTY_SEED + PROPERTY_SEPERATOR + seed);
+    writer.println(PROPERTY_TICK_LENGTH + PROPERTY_SEPERATOR + tickLength);
+    writer.println(PROPERTY_KEYFRAME_INTERVAL + PROPERTY_SEPERATOR + keyframeInterval);
+
+    // Float.toString() always reads back as exactly the same float, which
+    // replays depend on.
+    for (int i = 0; i < commands.size; i++) {
+      Command command = commands.items[i];
+      writer.println(PROPERTY_COMMAND + PROPERTY_SEPERATOR
+          + command.tick + VALUE_SEPERATOR
+          + command.type + VALUE_SEPERATOR
+          + command.index + VALUE_SEPERATOR
+          + command.x + VALUE_SEPERATOR
+          + command.y + VALUE_SEPERATOR
+          + command.radius);
+    }
+
+    for (int i = 0; i < keyframes.size; i++) {
+      Keyframe keyframe = keyframes.items[i];
+      writer.println(PROPERTY_KEYFRAME + PROPERTY_SEPERATOR
+          + keyframe.tick + VALUE_SEPERATOR
+          + keyframe.checksum);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Reads a log written by {@link #write(OutputStream)}. The stream is closed
+   * once read.
+   */
+  public static BattleLog read(InputStream inputStream) throws IOException {
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+
+      String levelId = getValue(reader, PROPERTY_LEVEL);
+      long seed = Long.parseLong(getValue(reader, PROPERTY_SEED));
+      long tickLength = Long.parseLong(getValue(reader, PROPERTY_TICK_LENGTH));
+      int keyframeInterval = Integer.parseInt(getValue(reader, PROPERTY_KEYFRAME_INTERVAL));
+      BattleLog log = new BattleLog(levelId, seed, tickLength, keyframeInterval);
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().length() == 0) {
+          continue;
+        }
+
+        int split = line.indexOf(PROPERTY_SEPERATOR);
+        if (split == -1) {
+          throw new IOException("Malformed battle log line: " + line);
+        }
+        String name = line.substring(0, split);
+        String[] values = line.substring(split + 1).split(VALUE_SEPERATOR);
+
+        try {
+          if (name.equals(PROPERTY_COMMAND) && (values.length == 5 || values.length == 6)) {
+            CommandType type = CommandType.valueOf(values[1]);
+            int index = Integer.parseInt(values[2]);
+            float radius = 0;
+            if (values.length == 6) {
+              radius = Float.parseFloat(values[5]);
+            } else if (type == CommandType.VIEW) {
+              radius = index;
+              index = -1;
+            }
+            log.addCommand(
+                Long.parseLong(values[0]),
+                type,
+                index,
+                Float.parseFloat(values[3]),
+                Float.parseFloat(values[4]),
+                radius);
+          } else if (name.equals(PROPERTY_KEYFRAME) && values.length == 2) {
+            log.addKeyframe(Long.parseLong(values[0]), Integer.parseInt(values[1]));
+          } else {
+            throw new IOException("Malformed battle log line: " + line);
+          }
+        } catch (IllegalArgumentException e) {
+          throw new IOException("Malformed battle log line: " + line);
+        }
+      }
+
+      return log;
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static String getValue(BufferedReader reader, String propName) throws IOException {
+    String line = reader.readLine();
+    String prefix = propName + PROPERTY_SEPERATOR;
+    if (line == null || !line.startsWith(prefix)) {
+      throw new IOException("Could not load property: " + propName);
+    }
+    return line.substring(prefix.length()).trim();
+  }
+
+  /** A single player command. */
+  public static class Command {
+    public final long tick;
+    public final CommandType type;
+    public final int index;
+    public final float x;
+    public final float y;
+    public final float radius;
+
+    public Command(long tick, CommandType type, int index, float x, float y) {
+      this(tick, type, index, x, y, 0);
+    }
+
+    public Command(long tick, CommandType type, int index, float x, float y, float radius) {
+      this.tick = tick;
+      this.type = type;
+      this.index = index;
+      this.x = x;
+      this.y = y;
+      this.radius = radius;
+    }
+  }
+
+  /** The checksum of the world's state after a tick. */
+  public static class Keyframe {
+    public final long tick;
+    public final int checksum;
+
+    public Keyframe(long tick, int checksum) {
+      this.tick = tick;
+      this.checksum = checksum;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.zeddic.war.replay;
+
+import com.zeddic.common.platform.Log;
+import com.zeddic.common.util.RandomUtil;
+import com.zeddic.war.WarWorld;
+import com.zeddic.war.level.LevelLoader;
+import com.zeddic.war.replay.BattleLog.Command;
+import com.zeddic.war.replay.BattleLog.Keyframe;
+
+/**
+ * Plays a {@link BattleLog} back through a {@link WarWorld}. Works the same
+ * whether the world is being stepped by the game loop or by the headless
+ * runner.
+ *
+ * <p>Each call to {@link #step()} runs as many ticks as the playback speed,
+ * applying every recorded command right before the tick it was given on.
+ * Keyframe checksums are compared as they are passed; the first tick that
+ * does not match is kept in {@link #getDivergedTick()}.
+ *
+ * <p>The world can not be restored to an arbitrary earlier state, so seeking
+ * backwards reloads the level and quickly simulates forward from the start
+ * without drawing anything.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class BattleReplayer {
+
+  private final BattleLog log;
+  private final LevelLoader loader;
+  private final WarWorld world;
+
+  private int speed = 1;
+  private int nextCommand;
+  private int nextKeyframe;
+  private long divergedTick = -1;
+
+  public BattleReplayer(BattleLog log, LevelLoader loader, WarWorld world) {
+    this.log = log;
+    this.loader = loader;
+    this.world = world;
+  }
+
+  /**
+   * Loads the log's level into the world and rewinds to the first tick.
+   */
+  public void restart() {
+    RandomUtil.setSeed(log.seed);
+    world.load(loader.load(log.levelId));
+    nextCommand = 0;
+    nextKeyframe = 0;
+  }
+
+  /**
+   * Sets how many ticks each call to {@link #step()} runs. Used to play
+   * back faster than the battle was originally played.
+   */
+  public void setSpeed(int speed) {
+    this.speed = Math.max(1, speed);
+  }
+
+  public int getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Advances the replay by the playback speed's worth of ticks. Once the end
+   * of the log has been reached the world keeps simulating as normal, just
+   * with no further commands.
+   */
+  public void step() {
+    for (int i = 0; i < speed; i++) {
+      tick();
+    }
+  }
+
+  /**
+   * Moves the replay to the given tick, restarting it first if the tick has
+   * already passed.
+   */
+  public void seek(long tick) {
+    if (tick < world.getTick()) {
+      restart();
+    }
+    while (world.getTick() < tick) {
+      tick();
+    }
+  }
+
+  /** Returns true once every recorded command and keyframe has been played. */
+  public boolean isFinished() {
+    return world.getTick() >= log.getLength();
+  }
+
+  /**
+   * Returns the first tick whose state did not match the recorded keyframe,
+   * or -1 if the replay has matched so far.
+   */
+  public long getDivergedTick() {
+    return divergedTick;
+  }
+
+  public BattleLog getLog() {
+    return log;
+  }
+
+  private void tick() {
+    long tick = world.getTick();
+
+    while (nextCommand < log.getCommandCount()) {
+      Command command = log.getCommand(nextCommand);
+      if (command.tick > tick) {
+        break;
+      }
+      world.apply(command);
+      nextCommand++;
+    }
+
+    world.update(log.tickLength);
+    tick = world.getTick();
+
+    while (nextKeyframe < log.getKeyframeCount()) {
+      Keyframe keyframe = log.getKeyframe(nextKeyframe);
+      if (keyframe.tick > tick) {
+        break;
+      }
+
+      if (keyframe.tick == tick
+          && divergedTick == -1
+          && keyframe.checksum != world.checksum()) {
+        divergedTick = tick;
+        Log.w(BattleReplayer.class.getName(), "Replay diverged from recording at tick " + tick);
+      }
+      nextKeyframe++;
+    }
+  }
+}
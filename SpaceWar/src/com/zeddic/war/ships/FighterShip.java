@@ -1,23 +1,41 @@
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.util.Components;
 import com.zeddic.war.R;
 import com.zeddic.war.collision.CollideBehavior;
+import com.zeddic.war.collision.CollisionLayers;
+import com.zeddic.war.collision.CollisionSystem;
 import com.zeddic.war.guns.Arsenal;
 import com.zeddic.war.guns.Gun;
 import com.zeddic.war.guns.control.EnemyAimingGunControl;
 
+/**
+ * The player's basic ship. Flies to whichever target it is given and shoots
+ * at any enemy within range.
+ * 
+ * <p>A fighter that is parked with no enemies in range falls asleep and
+ * skips its updates. It wakes up again when given a new target or when an
+ * enemy in sight moves into the collision cells around it.
+ */
 public class FighterShip extends Entity {
 
+  private static final float GUN_RANGE = 200;
+  
   private Gun gun;
+  private EnemyAimingGunControl aim;
   private Components components;
   private float speed;
   private StraightPath path;
+  
+  /**
+   * The gun's search count as of when the ship last moved or woke. The ship
+   * only sleeps once a search since then has found nothing to shoot at.
+   */
+  private int searchesAtRest;
   private static final Sprite sprite = new Sprite(40, 40, R.drawable.ship);
   private static final Color color = new Color(255, 0, 0, 255);
   
@@ -31,10 +49,12 @@ public class FighterShip extends Entity {
     this.radius = 8;
     this.speed = 100;
     this.collide.setBehavior(CollideBehavior.HIT_RECEIVE);
+    this.collide.setCategory(CollisionLayers.FRIENDLY_SHIPS);
     
     path = new StraightPath(this, speed);
     gun = Arsenal.getPeaShooter(this);
-    gun.setGunControl(new EnemyAimingGunControl(this, 200));
+    aim = new EnemyAimingGunControl(this, GUN_RANGE);
+    gun.setGunControl(aim);
     
     components = new Components();
     components.add(path);
@@ -44,6 +64,7 @@ public class FighterShip extends Entity {
   public void reset() {
     enable();
     gun.reset();
+    searchesAtRest = aim.getSearchCount();
   }
   
   public void spawn(float x, float y) {
@@ -56,21 +77,57 @@ public class FighterShip extends Entity {
   public void update(long time) {
     super.update(time);
     gun.setAutoFire(path.getTarget() == null);
+    int searches = aim.getSearchCount();
     components.update(time);
+    if (x != prevX || y != prevY) {
+      searchesAtRest = searches;
+    }
+    
+    if (isIdle()) {
+      sleep(GUN_RANGE);
+    }
+  }
+  
+  /**
+   * Returns true if the ship has nowhere to go, didn't move this update, and
+   * has nothing to shoot at, meaning its next update would change nothing.
+   * Nothing to shoot at has to come from a search made where the ship now
+   * is, not from one made before it moved or woke.
+   */
+  private boolean isIdle() {
+    return path.getTarget() == null
+        && gun.canFire()
+        && aim.getTarget() == null
+        && aim.getSearchCount() > searchesAtRest
+        && x == prevX
+        && y == prevY;
+  }
+  
+  @Override
+  public void onWatchedCellEntered(Entity other) {
+    if ((other.collide.getCategory() & CollisionLayers.ENEMY_SHIPS) == 0) {
+      return;
+    }
+    
+    float dX = other.x - x;
+    float dY = other.y - y;
+    // An enemy behind solid tiles couldn't be shot at, so waking for it
+    // would only put the ship back to sleep again.
+    if (dX * dX + dY * dY <= GUN_RANGE * GUN_RANGE
+        && CollisionSystem.get().isLineClear(x, y, other.x, other.y)) {
+      searchesAtRest = aim.getSearchCount();
+      wake();
+    }
   }
   
   @Override
-  public void draw(GL10 gl) {
-    sprite.x = x;
-    sprite.y = y;
-    sprite.rz = angle;
-    sprite.setColor(color);
-    sprite.draw(gl);
-    components.draw(gl);
+  public void snapshot(RenderSnapshot snapshot) {
+    snapshot.addSprite(sprite, this, color);
   }
   
   public void setTarget(Target target) {
     this.path.setTarget(target);
+    wake();
   }
 
   public Target getTarget() {
@@ -1,9 +1,8 @@
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
+import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
-import com.zeddic.common.opengl.SimpleGeometry;
+import com.zeddic.common.opengl.RenderSnapshot;
 
 public class HealthBar {
   public float x;
@@ -21,11 +20,14 @@ public class HealthBar {
     this.length = length;
   }
   
-  public void draw(GL10 gl) {
+  /**
+   * Records the health bar, positioned relative to the entity it belongs to.
+   */
+  public void snapshot(RenderSnapshot snapshot, Entity owner) {
     if (curHealth == maxHealth) {
       return;
     }
-    SimpleGeometry.drawLine(gl, x, y, x + length, y, red);
-    SimpleGeometry.drawLine(gl, x, y, x + (length * (curHealth / maxHealth)), y, green);
+    snapshot.addLine(owner, x, y, x + length, y, red);
+    snapshot.addLine(owner, x, y, x + (length * (curHealth / maxHealth)), y, green);
   }
 }
@@ -16,12 +16,9 @@
 
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.util.FloatMath;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.GameObject;
+import com.zeddic.common.platform.FloatMath;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.level.InvadePath;
 
@@ -54,9 +51,6 @@ public class InvadePathFollower implements GameObject {
     this.reached = false;
   }
 
-  @Override
-  public void draw(GL10 gl) { }
-
   @Override
   public void update(long time) {
 
@@ -74,8 +68,9 @@ public class InvadePathFollower implements GameObject {
     float distance = FloatMath.sqrt(dX * dX + dY * dY); 
 
     if (distance < travelPotential) {
-      parent.x = target.x;
-      parent.y = target.y;
+      // Move onto the point through the collision system so the entity's
+      // place in the collision grid stays up to date.
+      parent.collide.move(dX, dY);
       parent.velocity.x = 0;
       parent.velocity.y = 0;
       
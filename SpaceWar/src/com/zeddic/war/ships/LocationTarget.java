@@ -3,11 +3,9 @@ package com.zeddic.war.ships;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
-import com.zeddic.common.opengl.SimpleGeometry;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.transistions.Range;
 import com.zeddic.common.transistions.RangeConverter;
@@ -50,19 +48,11 @@ public class LocationTarget implements Target {
   }
 
   @Override
-  public void draw(GL10 gl) {
+  public void snapshot(RenderSnapshot snapshot) {
 
-    ringSprite.scale = sizeTransition.get();
-    ringSprite.setColor(color);
-    ringSprite.setAlpha(ALPHA.convert(ringSprite.scale));
-    ringSprite.x = x;
-    ringSprite.y = y;
-    ringSprite.draw(gl);
-    
-    dotSprite.x = x;
-    dotSprite.y = y;
-    dotSprite.setColor(color);
-    dotSprite.draw(gl);
+    float scale = sizeTransition.get();
+    snapshot.addSprite(ringSprite, x, y, 0, scale, color, ALPHA.convert(scale));
+    snapshot.addSprite(dotSprite, x, y, 0, 1, color, color.a);
 
     int length = followers.size();
     for (int i = 0; i < length ; i++) {
@@ -76,7 +66,11 @@ public class LocationTarget implements Target {
         temp.normalize();
         temp.x *= 32;
         temp.y *= 32;
-        SimpleGeometry.drawLine(gl, follower.x + temp.x, follower.y + temp.y, x, y, color);
+        snapshot.addLine(
+            follower.getLastX() + temp.x, follower.getLastY() + temp.y,
+            follower.x + temp.x, follower.y + temp.y,
+            x, y, x, y,
+            color);
       }
     } 
   }
@@ -1,13 +1,13 @@
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
 import com.zeddic.common.opengl.Sprite;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.R;
 import com.zeddic.war.collision.CollideBehavior;
+import com.zeddic.war.collision.CollisionLayers;
 import com.zeddic.war.effects.Effects;
 import com.zeddic.war.level.InvadePath;
 
@@ -30,6 +30,7 @@ public class Square extends Entity implements EnemyShip {
   public Square(float x, float y) {
     super(x, y);
     this.collide.setBehavior(CollideBehavior.RECEIVE_ONLY);
+    this.collide.setCategory(CollisionLayers.ENEMY_SHIPS);
     this.radius = 10;
     this.speed = 50;
     this.pather = new InvadePathFollower(this, speed);
@@ -61,16 +62,13 @@ public class Square extends Entity implements EnemyShip {
   }
   
   @Override
-  public void draw(GL10 gl) {
-    sprite.x = x;
-    sprite.y = y;
-    sprite.setColor(color);
-    sprite.draw(gl);
+  public void snapshot(RenderSnapshot snapshot) {
+    snapshot.addSprite(sprite, this, 0, 0, 1, color, color.a);
     
-    healthBar.x = x - (healthBar.length / 2);
-    healthBar.y = y + sprite.getHeight() / 2 + 2;
+    healthBar.x = -(healthBar.length / 2);
+    healthBar.y = sprite.getHeight() / 2 + 2;
     healthBar.curHealth = health;
-    healthBar.draw(gl);
+    healthBar.snapshot(snapshot, this);
   }
 
   public boolean isDead() {
@@ -1,11 +1,8 @@
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
-import android.util.FloatMath;
-
 import com.zeddic.common.Entity;
 import com.zeddic.common.GameObject;
+import com.zeddic.common.platform.FloatMath;
 
 public class StraightPath implements GameObject {
 
@@ -36,11 +33,6 @@ public class StraightPath implements GameObject {
     return target;
   }
   
-  @Override
-  public void draw(GL10 gl) {
-
-  }
-
   @Override
   public void update(long time) {
 
@@ -61,8 +53,9 @@ public class StraightPath implements GameObject {
     float distance = FloatMath.sqrt(dX * dX + dY * dY); 
 
     if (distance < travelPotential) {
-      parent.x = target.getX();
-      parent.y = target.getY();
+      // Move onto the target through the collision system so the entity's
+      // place in the collision grid stays up to date.
+      parent.collide.move(dX, dY);
       parent.velocity.x = 0;
       parent.velocity.y = 0;
       target.removeFollower(parent);
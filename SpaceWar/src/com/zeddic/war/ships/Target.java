@@ -1,8 +1,7 @@
 package com.zeddic.war.ships;
 
-import javax.microedition.khronos.opengles.GL10;
-
 import com.zeddic.common.Entity;
+import com.zeddic.common.opengl.RenderSnapshot;
 
 public interface Target {
   float getX();
@@ -11,6 +10,6 @@ public interface Target {
   void addFollower(Entity follower);
   void removeFollower(Entity follower);
   void update(long time);
-  void draw(GL10 gl);
+  void snapshot(RenderSnapshot snapshot);
   void addReachedHandler(Runnable handler);
 }
@@ -1,8 +1,8 @@
 package com.zeddic.war.ui;
 
-import android.view.MotionEvent;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.opengl.Renderable;
+import com.zeddic.common.platform.TouchEvent;
 
 /**
  * Abstract class for any user interface objects that the user may work with,
@@ -10,7 +10,7 @@ import com.zeddic.common.AbstractGameObject;
  * 
  * @author scott@zeddic.com (Scott Bailey)
  */
-public abstract class AbstractUiObject extends AbstractGameObject {
+public abstract class AbstractUiObject extends AbstractGameObject implements Renderable {
 
   public float x = 0;
   public float y = 0;
@@ -37,7 +37,7 @@ public abstract class AbstractUiObject extends AbstractGameObject {
    * Returns true if the given motion event takes place within this
    * UI element.
    */
-  public boolean within(MotionEvent e) {
+  public boolean within(TouchEvent e) {
     if (e.getPointerCount() == 0) {
       return false;
     }
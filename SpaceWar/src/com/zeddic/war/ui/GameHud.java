@@ -2,9 +2,12 @@ package com.zeddic.war.ui;
 
 import javax.microedition.khronos.opengles.GL10;
 
-import android.view.MotionEvent;
-
 import com.zeddic.common.AbstractGameObject;
+import com.zeddic.common.opengl.AbstractGame;
+import com.zeddic.common.opengl.Renderable;
+import com.zeddic.common.opengl.Screen;
+import com.zeddic.common.opengl.RenderSnapshot;
+import com.zeddic.common.platform.TouchEvent;
 
 /**
  * Renders the game 'heads up display'. This renders elements such as the
@@ -15,18 +18,31 @@ import com.zeddic.common.AbstractGameObject;
  * 
  * @author scott@zeddic.com (Scott Bailey)
  */
-public class GameHud extends AbstractGameObject {
+public class GameHud extends AbstractGameObject implements Renderable {
 
   // The button bar for spawning new ships.
   private SpawnInterface spawnInterface;
+  
+  // Cycles through fast forward speeds.
+  private SpeedButton speedButton;
+  
+  private boolean commandsEnabled = true;
    
-  public GameHud() {
+  public GameHud(AbstractGame game) {
     spawnInterface = new SpawnInterface();
+    speedButton = new SpeedButton(game);
+    positionSpeedButton();
   }
  
   @Override
   public void draw(GL10 gl) {
     spawnInterface.draw(gl);
+    speedButton.draw(gl);
+  }
+
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
+    spawnInterface.snapshot(snapshot);
   }
 
   @Override
@@ -34,8 +50,16 @@ public class GameHud extends AbstractGameObject {
     spawnInterface.update(time);
   }
   
-  public boolean onTouch(MotionEvent e) {
-    return spawnInterface.onTouch(e);
+  public boolean onTouch(TouchEvent e) {
+    return speedButton.onTouch(e) || (commandsEnabled && spawnInterface.onTouch(e));
+  }
+  
+  /**
+   * Sets whether the player may give commands, such as spawning ships. When
+   * disabled, only controls that don't affect the battle respond.
+   */
+  public void setCommandsEnabled(boolean commandsEnabled) {
+    this.commandsEnabled = commandsEnabled;
   }
   
   /**
@@ -44,5 +68,11 @@ public class GameHud extends AbstractGameObject {
    */
   public void reposition() {
     spawnInterface.reposition();
+    positionSpeedButton();
+  }
+  
+  private void positionSpeedButton() {
+    speedButton.x = Screen.width - speedButton.width / 2;
+    speedButton.y = speedButton.height / 2;
   }
 }
@@ -38,6 +38,10 @@ public class ShipButton extends AbstractUiObject {
     text.setText("$" + cost);
   }
   
+  public Color getColor() {
+    return color;
+  }
+  
   @Override
   public void update(long time) {
     
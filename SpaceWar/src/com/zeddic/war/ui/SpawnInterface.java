@@ -2,17 +2,17 @@ package com.zeddic.war.ui;
 
 import javax.microedition.khronos.opengles.GL10;
 
-import android.view.MotionEvent;
-
 import com.zeddic.common.AbstractGameObject;
 import com.zeddic.common.opengl.Color;
+import com.zeddic.common.opengl.RenderSnapshot;
+import com.zeddic.common.opengl.Renderable;
 import com.zeddic.common.opengl.Screen;
 import com.zeddic.common.opengl.Sprite;
+import com.zeddic.common.platform.TouchEvent;
 import com.zeddic.common.util.Vector2d;
 import com.zeddic.war.GameState;
 import com.zeddic.war.R;
 import com.zeddic.war.collision.CollisionSystem;
-import com.zeddic.war.ships.FighterShip;
 
 /**
  * A class that displays a user interface for selecting ships to
@@ -31,7 +31,7 @@ import com.zeddic.war.ships.FighterShip;
  * 
  * @author scott@zeddic.com (Scott Bailey)
  */
-public class SpawnInterface extends AbstractGameObject {
+public class SpawnInterface extends AbstractGameObject implements Renderable {
 
   /** The number of pixels the spawning ship sprite should appear above the finger. */
   private static final float SPAWN_OFFSET = 80;
@@ -42,6 +42,7 @@ public class SpawnInterface extends AbstractGameObject {
   
   /** The sprite of the currently spawning ship. */
   private Sprite spawn;
+  private Color spawnColor;
   
   /** The buttons to choose from. */
   private ShipButton button1 = new ShipButton(R.drawable.ship, new Color(255, 0, 0, 255), 10);
@@ -71,28 +72,29 @@ public class SpawnInterface extends AbstractGameObject {
     positionButtons();
   }
 
-  public boolean onTouch(MotionEvent e) {
+  public boolean onTouch(TouchEvent e) {
     switch (e.getAction()) {
-      case MotionEvent.ACTION_DOWN: return onPress(e);
-      case MotionEvent.ACTION_UP: return onRelease(e);
-      case MotionEvent.ACTION_MOVE: return onMove(e);
+      case TouchEvent.ACTION_DOWN: return onPress(e);
+      case TouchEvent.ACTION_UP: return onRelease(e);
+      case TouchEvent.ACTION_MOVE: return onMove(e);
       default: return onCancel(e);
     }
   }
   
-  private boolean onPress(MotionEvent e) {
+  private boolean onPress(TouchEvent e) {
     
     // If it's within any button, start the spawn.
     if (button1.within(e)) {
       spawning = true;
       spawn = button1.sprite;
+      spawnColor = button1.getColor();
       record(e);
     }
     
     return spawning;
   }
   
-  private boolean onRelease(MotionEvent e) {
+  private boolean onRelease(TouchEvent e) {
     boolean handled = spawning;
     
     // If in a spawn action, this is the time to 
@@ -110,7 +112,7 @@ public class SpawnInterface extends AbstractGameObject {
     return handled;
   }
   
-  private boolean onMove(MotionEvent e) {
+  private boolean onMove(TouchEvent e) {
     if (!spawning) {
       return false;
     }
@@ -120,7 +122,7 @@ public class SpawnInterface extends AbstractGameObject {
     return true;
   }
   
-  private boolean onCancel(MotionEvent e) {
+  private boolean onCancel(TouchEvent e) {
     return onRelease(e);
   }
   
@@ -133,18 +135,11 @@ public class SpawnInterface extends AbstractGameObject {
       return;
     }
 
-    FighterShip ship = GameState.stockpiles.ships.take(FighterShip.class);
-    if (ship == null) {
-      return;
-    }
-    
-    ship.x = worldPosition.x;
-    ship.y = worldPosition.y;
-    ship.enable();
+    GameState.world.spawnFighter(worldPosition.x, worldPosition.y);
   }
   
   /** Records the last observed finger location on the screen. */
-  private void record(MotionEvent e) {
+  private void record(TouchEvent e) {
     last.x = e.getX();
     last.y = e.getY();
   }
@@ -157,7 +152,14 @@ public class SpawnInterface extends AbstractGameObject {
   @Override
   public void draw(GL10 gl) {
     button1.draw(gl);
-    
+  }
+  
+  /**
+   * Records the ship being placed, if any. Spawn validity depends on the
+   * world so it is worked out here, alongside updates, rather than in draw().
+   */
+  @Override
+  public void snapshot(RenderSnapshot snapshot) {
     if (!spawning) {
       return;
     }
@@ -167,18 +169,11 @@ public class SpawnInterface extends AbstractGameObject {
     
     Color color = valid ? GOOD_COLOR : BAD_COLOR;
 
-    spawnCircle.x = screen.x;
-    spawnCircle.y = screen.y;
-    spawnCircle.setColor(color);
-    
     // TODO(baileys): Replace this with the gun range of the active ship
     // the user is trying to spawn.
-    spawnCircle.scale  = GameState.camera.convertToScreen(200 * 2);
-    spawnCircle.draw(gl);
-    
-    spawn.x = screen.x;
-    spawn.y = screen.y;
-    spawn.draw(gl);
+    float scale = GameState.camera.convertToScreen(200 * 2);
+    snapshot.addSprite(spawnCircle, screen.x, screen.y, 0, scale, color, color.a);
+    snapshot.addSprite(spawn, screen.x, screen.y, 0, 1, spawnColor, spawnColor.a);
   }
 
   private Vector2d getScreenSpawnLocation() {
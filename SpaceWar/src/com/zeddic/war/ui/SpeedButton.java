@@ -0,0 +1,71 @@
+package com.zeddic.war.ui;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import android.graphics.Paint.Align;
+
+import com.zeddic.common.opengl.AbstractGame;
+import com.zeddic.common.opengl.TextSprite;
+import com.zeddic.common.platform.TouchEvent;
+
+/**
+ * A button that cycles the game through its fast forward speeds each time it
+ * is pressed.
+ * 
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public class SpeedButton extends AbstractUiObject {
+
+  private static final int WIDTH = 64;
+  private static final int HEIGHT = 64;
+  private static final float[] SPEEDS = {1, 2, 4, 8, 16};
+  
+  private final AbstractGame game;
+  private final TextSprite text = new TextSprite(WIDTH, HEIGHT);
+  /**
+   * Changed by touches, which are handled on the simulation thread, and
+   * read when drawing on the GL thread.
+   */
+  private volatile int speed = 0;
+  private int shownSpeed = -1;
+  
+  public SpeedButton(AbstractGame game) {
+    this.game = game;
+    this.width = WIDTH;
+    this.height = HEIGHT;
+    text.setTextSize(24);
+    text.setTextAlignment(Align.CENTER);
+  }
+  
+  public boolean onTouch(TouchEvent e) {
+    if (!within(e)) {
+      return false;
+    }
+    
+    if (e.getAction() == TouchEvent.ACTION_DOWN) {
+      speed = (speed + 1) % SPEEDS.length;
+      game.setTimeScale(SPEEDS[speed]);
+    }
+    return true;
+  }
+  
+  @Override
+  public void update(long time) {
+    
+  }
+  
+  @Override
+  public void draw(GL10 gl) {
+    
+    // Only redraw the text when the speed changes.
+    int current = speed;
+    if (current != shownSpeed) {
+      text.setText((int) SPEEDS[current] + "x");
+      shownSpeed = current;
+    }
+    
+    text.x = x;
+    text.y = y;
+    text.draw(gl);
+  }
+}
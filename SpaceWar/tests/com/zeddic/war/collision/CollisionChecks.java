@@ -0,0 +1,1167 @@
+package com.zeddic.war.collision;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.zeddic.common.Entity;
+import com.zeddic.common.util.Circle;
+import com.zeddic.common.util.Polygon;
+import com.zeddic.common.util.Polygon.PolygonBuilder;
+import com.zeddic.common.util.Shape;
+import com.zeddic.common.util.SimpleList;
+import com.zeddic.common.util.Vector2d;
+import com.zeddic.war.collision.TileBounds.EdgeType;
+import com.zeddic.war.level.Level;
+import com.zeddic.war.level.Level.LevelBuilder;
+import com.zeddic.war.level.TileType;
+
+/**
+ * Checks the fast searches and pushes of the collision system against slow
+ * but obviously correct versions of the same thing, on random levels filled
+ * with random entities and random shapes. Each broadphase has to find the
+ * same entities as looking at every one of them in turn would.
+ *
+ * <p>Lives under the tests folder so it is never built into the app. Run it
+ * from the desktop with this folder on the classpath, either directly or
+ * with {@code HeadlessRunner --verify [seed]}.
+ * Each check prints how many cases it tried and how many came out wrong,
+ * and the same seed always builds the same worlds, so a failure can be
+ * run again.
+ *
+ * @author scott@zeddic.com (Scott Bailey)
+ */
+public final class CollisionChecks {
+
+  private static final int ROWS = 60;
+  private static final int COLS = 100;
+  private static final float ROCK_CHANCE = 0.12f;
+  private static final int ENTITIES = 1500;
+  private static final int CASES = 2000;
+
+  /** How far apart two fractions along a line may be and still agree. */
+  private static final float TOLERANCE = 0.0001f;
+
+  /**
+   * How far apart two shapes must be, or how far they must overlap, for
+   * the exact check to call it. Closer than this it could go either way.
+   */
+  private static final double SHAPE_TOLERANCE = 0.01;
+
+  /** How many threads search at once, and how many times each repeats the searches. */
+  private static final int THREADS = 4;
+  private static final int REPEATS = 20;
+
+  /** The column of the rock wall, the whole height of the level, that moves run into. */
+  private static final int WALL_COL = 20;
+
+  /** The furthest an entity steps along each axis before tiles push it out. */
+  private static final float MAX_STEP = 8;
+
+  private static final int[] LAYERS = {
+      CollisionLayers.SCENERY,
+      CollisionLayers.FRIENDLY_SHIPS,
+      CollisionLayers.ENEMY_SHIPS};
+
+  private final Random random;
+  private final PrintStream out;
+  private int failures;
+
+  /** The entities placed in the level being checked. */
+  private final List<Probe> probes = new ArrayList<Probe>();
+  private Level level;
+  private Broadphase broadphase;
+
+  /**
+   * Runs every check with the given seed, or the current time, and exits
+   * with an error if any of them failed.
+   */
+  public static void main(String[] args) {
+    long seed = args.length > 0 ? Long.parseLong(args[0]) : System.currentTimeMillis();
+    System.out.println("Seed: " + seed);
+    int failures = new CollisionChecks(seed, System.out).run();
+    System.out.println(failures == 0 ? "All checks passed" : failures + " checks failed");
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+
+  public CollisionChecks(long seed, PrintStream out) {
+    this.random = new Random(seed);
+    this.out = out;
+  }
+
+  /**
+   * Runs every check, printing a line for each, and returns the number of
+   * checks that got any case wrong.
+   */
+  public int run() {
+    for (BroadphaseType type : BroadphaseType.values()) {
+      fill(type);
+      checkQuery(type);
+      checkNearest(type);
+      checkAnyWithin(type);
+      checkContacts(type);
+      checkRaycast(type);
+      checkProximityQuery(type);
+      checkQueryThreads(type);
+      checkQueryAllocation(type);
+    }
+    checkTileRaycast();
+    checkTileEdges();
+    checkShapes();
+    for (BroadphaseType type : BroadphaseType.values()) {
+      buildWall(type);
+      checkMoveIntoWall(type);
+      checkMoveIntoEntity(type);
+    }
+
+    CollisionSystem.get().reset();
+    return failures;
+  }
+
+  /**
+   * Builds a random level using the given broadphase, and fills it with
+   * entities of all sizes and layers. A few are disabled, and a few are
+   * much larger than the rest.
+   */
+  private void fill(BroadphaseType type) {
+    LevelBuilder builder = new LevelBuilder();
+    builder.withGridSize(ROWS, COLS);
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLS; col++) {
+        builder.addTile(row, col,
+            random.nextFloat() < ROCK_CHANCE ? TileType.SOLID_ROCK : TileType.EMPTY);
+      }
+    }
+    level = builder.build();
+    level.setBroadphase(type);
+
+    CollisionSystem system = CollisionSystem.get();
+    system.initializeForLevel(level);
+    broadphase = system.getBroadphase();
+
+    probes.clear();
+    for (int i = 0; i < ENTITIES; i++) {
+      float radius = i % 50 == 0 ? 40 + random.nextFloat() * 100 : 2 + random.nextFloat() * 14;
+      Probe probe = new Probe(
+          radius + random.nextFloat() * (level.getWidth() - radius * 2),
+          radius + random.nextFloat() * (level.getHeight() - radius * 2),
+          radius,
+          LAYERS[random.nextInt(LAYERS.length)]);
+      probe.collide.setMask(randomLayers());
+      probe.enabled = random.nextInt(10) != 0;
+      probe.collide.registerObject();
+      probes.add(probe);
+    }
+  }
+
+  /**
+   * Every entity in the layers searched whose bounds reach within the
+   * radius must be found. Others may be found too, but only from those
+   * layers.
+   */
+  private void checkQuery(BroadphaseType type) {
+    SimpleList<Entity> result = SimpleList.create(Entity.class);
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x = randomX();
+      float y = randomY();
+      float radius = random.nextFloat() * 300;
+      int layers = randomLayers();
+      broadphase.query(x, y, radius, layers, result);
+
+      Map<Entity, Boolean> found = new IdentityHashMap<Entity, Boolean>();
+      boolean bad = false;
+      for (int j = 0; j < result.size; j++) {
+        Entity entity = result.items[j];
+        found.put(entity, true);
+        bad |= (entity.collide.getCategory() & layers) == 0;
+      }
+      for (Probe probe : probes) {
+        float reach = radius + probe.radius;
+        if ((probe.collide.getCategory() & layers) != 0
+            && distanceSquared(probe, x, y) <= reach * reach) {
+          bad |= !found.containsKey(probe);
+        }
+      }
+      if (bad) {
+        wrong++;
+      }
+    }
+    report(type, "query", CASES, wrong);
+  }
+
+  /**
+   * The k nearest enabled entities in the layers searched and within the
+   * radius must be found, nearest first. Entities exactly as far away as
+   * one another may be found in either order, so only their distances are
+   * compared.
+   */
+  private void checkNearest(BroadphaseType type) {
+    Neighbours neighbours = new Neighbours();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x = randomX();
+      float y = randomY();
+      float radius = random.nextFloat() * 600;
+      int layers = randomLayers();
+      int k = 1 + random.nextInt(6);
+      Entity exclude = random.nextBoolean() ? probes.get(random.nextInt(probes.size())) : null;
+      neighbours.reset(k, radius, layers, exclude, false);
+      broadphase.nearest(x, y, neighbours);
+
+      float[] expected = nearest(x, y, radius, layers, exclude);
+      boolean bad = neighbours.size != Math.min(k, expected.length);
+      for (int j = 0; j < neighbours.size && !bad; j++) {
+        Entity entity = neighbours.entities[j];
+        bad = neighbours.distances[j] != expected[j]
+            || distanceSquared(entity, x, y) != expected[j]
+            || entity == exclude
+            || !entity.enabled
+            || (entity.collide.getCategory() & layers) == 0;
+      }
+      if (bad) {
+        wrong++;
+      }
+    }
+    report(type, "nearest", CASES, wrong);
+  }
+
+  /** A search for any entity at all must find one whenever there is one. */
+  private void checkAnyWithin(BroadphaseType type) {
+    Neighbours neighbours = new Neighbours();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x = randomX();
+      float y = randomY();
+      float radius = random.nextFloat() * 200;
+      int layers = randomLayers();
+      neighbours.reset(1, radius, layers, null, true);
+      broadphase.nearest(x, y, neighbours);
+
+      if ((neighbours.size > 0) != (nearest(x, y, radius, layers, null).length > 0)) {
+        wrong++;
+      }
+    }
+    report(type, "any within", CASES, wrong);
+  }
+
+  /**
+   * Every other entity that overlaps an entity, and is in a layer it can
+   * hit, must be listed once as a contact. Half the entities checked are
+   * tracked and half are not.
+   */
+  private void checkContacts(BroadphaseType type) {
+    Contacts contacts = new Contacts();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      Probe probe;
+      if (i % 2 == 0) {
+        probe = probes.get(random.nextInt(probes.size()));
+      } else {
+        float radius = 2 + random.nextFloat() * 40;
+        probe = new Probe(randomX(), randomY(), radius, LAYERS[random.nextInt(LAYERS.length)]);
+        probe.collide.setMask(randomLayers());
+      }
+      contacts.clear();
+      broadphase.findContacts(probe.collide, contacts);
+
+      Map<Entity, Boolean> found = new IdentityHashMap<Entity, Boolean>();
+      for (int j = 0; j < contacts.size; j++) {
+        found.put(contacts.others[j], true);
+      }
+      int expected = 0;
+      boolean bad = found.size() != contacts.size;
+      for (Probe other : probes) {
+        float reach = probe.radius + other.radius;
+        if (other != probe
+            && (other.collide.getCategory() & probe.collide.getMask()) != 0
+            && distanceSquared(other, probe.x, probe.y) < reach * reach) {
+          expected++;
+          bad |= !found.containsKey(other);
+        }
+      }
+      if (bad || expected != contacts.size) {
+        wrong++;
+      }
+    }
+    report(type, "contacts", CASES, wrong);
+  }
+
+  /**
+   * A raycast must stop at the first entity in the layers that the line
+   * touches, unless what the hit already holds is nearer.
+   */
+  private void checkRaycast(BroadphaseType type) {
+    RayHit hit = new RayHit();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x0 = randomX();
+      float y0 = randomY();
+      float x1 = x0 + randomLength();
+      float y1 = y0 + randomLength();
+      int layers = randomLayers();
+      hit.clear();
+      if (i % 4 == 0) {
+        hit.fraction = random.nextFloat();
+      }
+      float expected = hit.fraction;
+      broadphase.raycast(x0, y0, x1, y1, layers, hit);
+
+      Entity first = null;
+      for (Probe probe : probes) {
+        if ((probe.collide.getCategory() & layers) == 0) {
+          continue;
+        }
+        float fraction = Narrowphase.raycast(
+            x0 - probe.x, y0 - probe.y, probe.radius, x1 - x0, y1 - y0);
+        if (fraction < expected) {
+          expected = fraction;
+          first = probe;
+        }
+      }
+      if (hit.fraction != expected || (first != null && hit.entity == null)) {
+        wrong++;
+      }
+    }
+    report(type, "raycast", CASES, wrong);
+  }
+
+  /**
+   * A tile raycast must stop where the line first enters a solid tile,
+   * found here by clipping the line against every solid tile around it.
+   * Where the line only grazes a tile's corner or runs along its edge,
+   * stopping there or not are both right.
+   */
+  private void checkTileRaycast() {
+    TileGrid tiles = CollisionSystem.get().getTileGrid();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x0 = randomX();
+      float y0 = randomY();
+      float x1 = x0 + randomLength();
+      float y1 = y0 + randomLength();
+      if (i % 8 == 0) {
+        // Lines along a row or column of cells.
+        if (random.nextBoolean()) {
+          x1 = x0;
+        } else {
+          y1 = y0;
+        }
+      }
+      float fraction = tiles.raycast(x0, y0, x1, y1);
+
+      if (Math.abs(fraction - clip(tiles, x0, y0, x1, y1, false)) > TOLERANCE
+          && Math.abs(fraction - clip(tiles, x0, y0, x1, y1, true)) > TOLERANCE) {
+        wrong++;
+      }
+    }
+    report("TileGrid", "raycast", CASES, wrong);
+  }
+
+  /**
+   * Returns how far along the line it first enters a solid tile, or 1 if it
+   * never does. Touching a tile without passing into it only counts if
+   * asked to.
+   */
+  private float clip(TileGrid tiles, float x0, float y0, float x1, float y1, boolean touching) {
+    float size = Level.TILE_SIZE;
+    int minRow = (int) Math.floor(Math.min(y0, y1) / size);
+    int maxRow = (int) Math.floor(Math.max(y0, y1) / size);
+    int minCol = (int) Math.floor(Math.min(x0, x1) / size);
+    int maxCol = (int) Math.floor(Math.max(x0, x1) / size);
+
+    double first = 1;
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        TileCell cell = tiles.get(row, col);
+        if (cell == null || !cell.isSolid()) {
+          continue;
+        }
+        double[] span = {0, 1};
+        if (clip(span, x0, x1 - x0, cell.left(), cell.right())
+            && clip(span, y0, y1 - y0, cell.top(), cell.bottom())
+            && (touching ? span[0] <= span[1] : span[0] < span[1])) {
+          first = Math.min(first, span[0]);
+        }
+      }
+    }
+    return (float) first;
+  }
+
+  /**
+   * Narrows the span of the line that lies between min and max along one
+   * axis. Returns false if none of it does.
+   */
+  private static boolean clip(double[] span, float start, float delta, float min, float max) {
+    if (delta == 0) {
+      return start >= min && start <= max;
+    }
+    double near = (min - start) / (double) delta;
+    double far = (max - start) / (double) delta;
+    span[0] = Math.max(span[0], Math.min(near, far));
+    span[1] = Math.min(span[1], Math.max(near, far));
+    return true;
+  }
+
+  /**
+   * The merged edges must find the same shortest push as checking each
+   * solid cell the entity overlaps on its own, which is how tiles used to
+   * push entities out. An entity that steps into the tiles from somewhere
+   * clear must then be pushed clear whenever pushing it out of each cell in
+   * turn would have cleared it.
+   */
+  private void checkTileEdges() {
+    TileGrid tiles = CollisionSystem.get().getTileGrid();
+    List<TileCell> solid = new ArrayList<TileCell>();
+    for (int row = 0; row <= level.getTileRows(); row++) {
+      for (int col = 0; col <= level.getTileCols(); col++) {
+        TileCell cell = tiles.get(row, col);
+        if (cell != null && cell.isSolid()) {
+          solid.add(cell);
+        }
+      }
+    }
+
+    Vector2d expected = new Vector2d();
+    Probe probe = new Probe(0, 0, 0, CollisionLayers.SCENERY);
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      placeNear(solid.get(random.nextInt(solid.size())), probe);
+      expected.x = Float.MAX_VALUE;
+      expected.y = Float.MAX_VALUE;
+      boolean expectedHit = false;
+      for (int row = row(probe.top()); row <= row(probe.bottom()); row++) {
+        for (int col = row(probe.left()); col <= row(probe.right()); col++) {
+          expectedHit |= findCellProjection(tiles.get(row, col), probe, expected);
+        }
+      }
+
+      boolean hit = tiles.edges.findProjection(probe);
+      if (hit != expectedHit || (hit && length(tiles.edges.projection) != length(expected))) {
+        wrong++;
+      }
+    }
+    report("TileEdges", "push", CASES, wrong);
+
+    CollisionEvents events = new CollisionEvents();
+    Probe cells = new Probe(0, 0, 0, CollisionLayers.SCENERY);
+    wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      do {
+        placeNear(solid.get(random.nextInt(solid.size())), probe);
+      } while (overlapsSolidTile(tiles, probe));
+
+      probe.x += (random.nextFloat() * 2 - 1) * MAX_STEP;
+      probe.y += (random.nextFloat() * 2 - 1) * MAX_STEP;
+      cells.radius = probe.radius;
+      cells.x = probe.x;
+      cells.y = probe.y;
+
+      tiles.edges.collide(probe, events);
+      events.dispatch();
+      pushOutOfCells(tiles, cells, expected);
+      if (overlapsSolidTile(tiles, probe) && !overlapsSolidTile(tiles, cells)) {
+        wrong++;
+      }
+    }
+    report("TileEdges", "clear", CASES, wrong);
+  }
+
+  /** Gives the probe a random size and places it overlapping or near the cell. */
+  private void placeNear(TileCell cell, Probe probe) {
+    probe.radius = 4 + random.nextFloat() * 36;
+    float reach = Level.TILE_SIZE + probe.radius * 2;
+    probe.x = cell.left() - probe.radius + random.nextFloat() * reach;
+    probe.y = cell.top() - probe.radius + random.nextFloat() * reach;
+  }
+
+  /**
+   * Pushes the entity out of each solid cell it overlaps in turn, the way
+   * tiles used to.
+   */
+  private static void pushOutOfCells(TileGrid tiles, Entity entity, Vector2d projection) {
+    int minRow = row(entity.top());
+    int maxRow = row(entity.bottom());
+    int minCol = row(entity.left());
+    int maxCol = row(entity.right());
+    for (int row = minRow; row <= maxRow; row++) {
+      for (int col = minCol; col <= maxCol; col++) {
+        projection.x = Float.MAX_VALUE;
+        projection.y = Float.MAX_VALUE;
+        if (findCellProjection(tiles.get(row, col), entity, projection)) {
+          entity.x += projection.x;
+          entity.y += projection.y;
+        }
+      }
+    }
+  }
+
+  /**
+   * Keeps the shortest push out of the cell's solid edges, if it is
+   * shorter than the one given, and returns true if the entity has crossed
+   * any of them. As with the merged edges, the entity must overlap the
+   * cell, and a side lie inside it, by more than {@link TileEdges#SLOP}.
+   */
+  private static boolean findCellProjection(TileCell cell, Entity entity, Vector2d projection) {
+    if (cell == null || !cell.isSolid()
+        || cell.left() >= entity.right() - TileEdges.SLOP
+        || cell.right() <= entity.left() + TileEdges.SLOP
+        || cell.top() >= entity.bottom() - TileEdges.SLOP
+        || cell.bottom() <= entity.top() + TileEdges.SLOP) {
+      return false;
+    }
+
+    boolean hit = false;
+    if (cell.bottomEdge == EdgeType.SOLID && entity.top() > cell.top()) {
+      hit |= shorter(projection, 0, cell.bottom() - entity.top());
+    }
+    if (cell.topEdge == EdgeType.SOLID && entity.bottom() < cell.bottom()) {
+      hit |= shorter(projection, 0, cell.top() - entity.bottom());
+    }
+    if (cell.leftEdge == EdgeType.SOLID && entity.right() < cell.right()) {
+      hit |= shorter(projection, cell.left() - entity.right(), 0);
+    }
+    if (cell.rightEdge == EdgeType.SOLID && entity.left() > cell.left()) {
+      hit |= shorter(projection, cell.right() - entity.left(), 0);
+    }
+    return hit;
+  }
+
+  /**
+   * Keeps the push (dX, dY) if it is shorter than the one so far. Returns
+   * false if the push is within the slop, and so doesn't count.
+   */
+  private static boolean shorter(Vector2d projection, float dX, float dY) {
+    if (length(dX, dY) <= TileEdges.SLOP) {
+      return false;
+    }
+    if (length(dX, dY) < length(projection.x, projection.y)) {
+      projection.x = dX;
+      projection.y = dY;
+    }
+    return true;
+  }
+
+  /** Returns how long a push along one axis is. */
+  private static float length(float dX, float dY) {
+    return Math.abs(dX + dY);
+  }
+
+  private static float length(Vector2d projection) {
+    return length(projection.x, projection.y);
+  }
+
+  /**
+   * Returns true if the entity's bounds overlap any solid tile by more than
+   * a sliver.
+   */
+  private static boolean overlapsSolidTile(TileGrid tiles, Entity entity) {
+    float sliver = 0.01f;
+    for (int row = row(entity.top()); row <= row(entity.bottom()); row++) {
+      for (int col = row(entity.left()); col <= row(entity.right()); col++) {
+        TileCell cell = tiles.get(row, col);
+        if (cell != null && cell.isSolid()
+            && entity.left() < cell.right() - sliver && entity.right() > cell.left() + sliver
+            && entity.top() < cell.bottom() - sliver && entity.bottom() > cell.top() + sliver) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns the row or column of tiles holding a position. */
+  private static int row(float position) {
+    return (int) Math.floor(position / Level.TILE_SIZE);
+  }
+
+  /**
+   * Builds an empty level, using the given broadphase, with a single
+   * column of rock from top to bottom.
+   */
+  private void buildWall(BroadphaseType type) {
+    LevelBuilder builder = new LevelBuilder();
+    builder.withGridSize(ROWS, COLS);
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLS; col++) {
+        builder.addTile(row, col, col == WALL_COL ? TileType.SOLID_ROCK : TileType.EMPTY);
+      }
+    }
+    level = builder.build();
+    level.setBroadphase(type);
+    CollisionSystem.get().initializeForLevel(level);
+    probes.clear();
+  }
+
+  /**
+   * However long a move into the wall, and at whatever angle, the entity
+   * must stop against it and slide along it, never ending up inside or
+   * past it.
+   */
+  private void checkMoveIntoWall(BroadphaseType type) {
+    TileGrid tiles = CollisionSystem.get().getTileGrid();
+    float wall = wallLeft();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float radius = 2 + random.nextFloat() * 38;
+      float min = Level.TILE_SIZE * 2 + radius;
+      float x = min + random.nextFloat() * (wall - min - radius - Level.TILE_SIZE);
+      float y = min + random.nextFloat() * (level.getHeight() - min * 2);
+      Probe probe = new Probe(x, y, radius, CollisionLayers.FRIENDLY_SHIPS);
+      probe.collide.setMask(CollisionLayers.SCENERY);
+      probe.collide.registerObject();
+
+      float dX = (wall - x) * (1 + random.nextFloat() * 10);
+      float dY = (random.nextFloat() * 2 - 1) * dX;
+      probe.collide.move(dX, dY);
+      if (probe.right() > wall + Narrowphase.TOUCHING || overlapsSolidTile(tiles, probe)) {
+        wrong++;
+      }
+      remove(probe);
+    }
+    report(type, "wall move", CASES, wrong);
+  }
+
+  /**
+   * However long a move straight at an entity that stays put, the mover
+   * must stop against it on the near side, never pass through it.
+   */
+  private void checkMoveIntoEntity(BroadphaseType type) {
+    float wall = wallLeft() + Level.TILE_SIZE;
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float radius = 2 + random.nextFloat() * 38;
+      float x = wall + 300 + random.nextFloat() * (level.getWidth() - wall - 600);
+      float y = 300 + random.nextFloat() * (level.getHeight() - 600);
+      Probe target = new Probe(x, y, radius, CollisionLayers.ENEMY_SHIPS);
+      target.collide.setBehavior(CollideBehavior.RECEIVE_ONLY);
+      target.collide.registerObject();
+
+      float moverRadius = 2 + random.nextFloat() * 38;
+      float angle = random.nextFloat() * 2 * (float) Math.PI;
+      float distance = radius + moverRadius + 1 + random.nextFloat() * 200;
+      Probe mover = new Probe(
+          x + (float) Math.cos(angle) * distance,
+          y + (float) Math.sin(angle) * distance,
+          moverRadius,
+          CollisionLayers.FRIENDLY_SHIPS);
+      mover.collide.setMask(CollisionLayers.ENEMY_SHIPS);
+      mover.collide.registerObject();
+
+      float length = 2 + random.nextFloat() * 10;
+      float dX = (x - mover.x) * length;
+      float dY = (y - mover.y) * length;
+      mover.collide.move(dX, dY);
+
+      float minDistance = radius + moverRadius - Narrowphase.TOUCHING;
+      if (distanceSquared(mover, x, y) < minDistance * minDistance
+          || (mover.x - x) * dX + (mover.y - y) * dY > 0) {
+        wrong++;
+      }
+      remove(mover);
+      remove(target);
+    }
+    report(type, "entity move", CASES, wrong);
+  }
+
+  /** Returns the left side of the wall built by {@link #buildWall}. */
+  private static float wallLeft() {
+    return (WALL_COL + 1) * Level.TILE_SIZE;
+  }
+
+  /**
+   * Takes a probe back out of the collision system, ending the tick so its
+   * body may be used again.
+   */
+  private static void remove(Probe probe) {
+    probe.collide.unregisterObject();
+    CollisionSystem.get().update(0);
+  }
+
+  /**
+   * A query must find every enabled entity in the layers whose center is
+   * within the radius, and nothing else. Searching with a second query
+   * while looking through the results must leave them alone.
+   */
+  private void checkProximityQuery(BroadphaseType type) {
+    ProximityQuery outer = new ProximityQuery();
+    ProximityQuery inner = new ProximityQuery();
+    List<Entity> before = new ArrayList<Entity>();
+    int wrong = 0;
+    for (int i = 0; i < CASES; i++) {
+      float x = randomX();
+      float y = randomY();
+      float radius = random.nextFloat() * 300;
+      int layers = randomLayers();
+      SimpleList<Entity> result = outer.getNearbyObjects(layers, x, y, radius);
+
+      Map<Entity, Boolean> found = new IdentityHashMap<Entity, Boolean>();
+      for (int j = 0; j < result.size; j++) {
+        found.put(result.items[j], true);
+      }
+      int expected = 0;
+      boolean bad = false;
+      for (Probe probe : probes) {
+        if (probe.enabled
+            && (probe.collide.getCategory() & layers) != 0
+            && distanceSquared(probe, x, y) <= radius * radius) {
+          expected++;
+          bad |= !found.containsKey(probe);
+        }
+      }
+      bad |= found.size() != expected || result.size != expected;
+
+      before.clear();
+      for (int j = 0; j < result.size; j++) {
+        before.add(result.items[j]);
+        Entity entity = result.items[j];
+        inner.getNearbyObjects(layers, entity.x, entity.y, radius);
+        inner.getNearest(layers, entity.x, entity.y, radius, 4);
+      }
+      for (int j = 0; j < result.size; j++) {
+        bad |= result.items[j] != before.get(j);
+      }
+      if (bad || result.size != before.size()) {
+        wrong++;
+      }
+    }
+    report(type, "proximity", CASES, wrong);
+  }
+
+  /**
+   * Threads each searching with their own query, all at once, must find
+   * exactly what the same searches found one at a time.
+   */
+  private void checkQueryThreads(final BroadphaseType type) {
+    final float[] xs = new float[CASES];
+    final float[] ys = new float[CASES];
+    final int[] layers = new int[CASES];
+    final long[] expected = new long[CASES];
+    ProximityQuery query = new ProximityQuery();
+    for (int i = 0; i < CASES; i++) {
+      xs[i] = randomX();
+      ys[i] = randomY();
+      layers[i] = randomLayers();
+      expected[i] = search(query, xs[i], ys[i], layers[i]);
+    }
+
+    final int[] wrong = new int[THREADS];
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          ProximityQuery query = new ProximityQuery();
+          for (int repeat = 0; repeat < REPEATS; repeat++) {
+            for (int i = 0; i < CASES; i++) {
+              if (search(query, xs[i], ys[i], layers[i]) != expected[i]) {
+                wrong[thread]++;
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+
+    int total = 0;
+    for (int t = 0; t < THREADS; t++) {
+      try {
+        threads[t].join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        total++;
+      }
+      total += wrong[t];
+    }
+    report(type, "threads", CASES * REPEATS * THREADS, total);
+  }
+
+  /**
+   * Once its lists have grown to fit, a query must search without
+   * allocating anything. Only measured where the platform can count the
+   * bytes a thread allocates, such as a desktop JVM.
+   */
+  private void checkQueryAllocation(BroadphaseType type) {
+    float[] xs = new float[CASES];
+    float[] ys = new float[CASES];
+    int[] layers = new int[CASES];
+    for (int i = 0; i < CASES; i++) {
+      xs[i] = randomX();
+      ys[i] = randomY();
+      layers[i] = randomLayers();
+    }
+
+    ProximityQuery query = new ProximityQuery();
+    for (int repeat = 0; repeat < REPEATS; repeat++) {
+      for (int i = 0; i < CASES; i++) {
+        search(query, xs[i], ys[i], layers[i]);
+      }
+    }
+
+    AllocationCounter counter = AllocationCounter.create();
+    if (counter == null) {
+      print(type, "allocation", CASES * REPEATS, "not measured");
+      return;
+    }
+    long start = counter.bytes();
+    for (int repeat = 0; repeat < REPEATS; repeat++) {
+      for (int i = 0; i < CASES; i++) {
+        search(query, xs[i], ys[i], layers[i]);
+      }
+    }
+    long allocated = counter.bytes() - start - counter.overhead;
+    report(type, "allocation", CASES * REPEATS, allocated > 0 ? 1 : 0);
+    if (allocated > 0) {
+      out.println("  " + allocated + " bytes allocated");
+    }
+  }
+
+  /**
+   * Makes one of each kind of search with the query, and returns a hash of
+   * what they found.
+   */
+  private static long search(ProximityQuery query, float x, float y, int layers) {
+    long hash = 0;
+    SimpleList<Entity> nearby = query.getNearbyObjects(layers, x, y, 150);
+    for (int i = 0; i < nearby.size; i++) {
+      hash = hash * 31 + System.identityHashCode(nearby.items[i]);
+    }
+    SimpleList<Entity> nearest = query.getNearest(layers, x, y, 400, 4);
+    for (int i = 0; i < nearest.size; i++) {
+      hash = hash * 31 + System.identityHashCode(nearest.items[i]);
+    }
+    Entity closest = query.getClosest(layers, x, y, 400);
+    hash = hash * 31 + (closest == null ? 0 : System.identityHashCode(closest));
+    return hash * 2 + (query.isAnyWithin(layers, x, y, 60) ? 1 : 0);
+  }
+
+  /**
+   * The separating axis check must agree with the exact geometry of random
+   * circles and turned, scaled polygons about whether they overlap. Its
+   * push must move the first shape clear of the second, and must be the
+   * shortest such push along its direction, so one a tenth shorter leaves
+   * them still overlapping.
+   */
+  private void checkShapes() {
+    SeparatingAxes axes = new SeparatingAxes();
+    int wrong = 0;
+    int pushes = 0;
+    int wrongPushes = 0;
+    for (int i = 0; i < CASES; i++) {
+      Shape a = randomShape();
+      Shape b = randomShape();
+      float x = random.nextFloat() * 120 - 60;
+      float y = random.nextFloat() * 120 - 60;
+      boolean hit = axes.collide(a, x, y, b, 0, 0);
+      int overlap = overlap(a, x, y, b);
+      if (hit ? overlap < 0 : overlap > 0) {
+        wrong++;
+      }
+      if (!hit) {
+        continue;
+      }
+
+      pushes++;
+      float dX = axes.projection.x;
+      float dY = axes.projection.y;
+      float length = (float) Math.hypot(dX, dY);
+      float margin = (float) SHAPE_TOLERANCE / length;
+      boolean clear = overlap(a, x + dX * (1 + margin), y + dY * (1 + margin), b) <= 0;
+      boolean shortest = length < 0.5f || overlap(a, x + dX * 0.9f, y + dY * 0.9f, b) >= 0;
+      if (!clear || !shortest) {
+        wrongPushes++;
+      }
+    }
+    report("SeparatingAxes", "overlap", CASES, wrong);
+    report("SeparatingAxes", "push", pushes, wrongPushes);
+  }
+
+  /**
+   * Returns a circle, a box or a regular polygon, of random size, turned
+   * and scaled at random.
+   */
+  private Shape randomShape() {
+    int kind = random.nextInt(3);
+    if (kind == 0) {
+      return new Circle(5 + random.nextFloat() * 30);
+    }
+
+    PolygonBuilder builder = new PolygonBuilder();
+    if (kind == 1) {
+      float width = 5 + random.nextFloat() * 40;
+      float height = 5 + random.nextFloat() * 40;
+      builder.add(-width, -height).add(width, -height).add(width, height).add(-width, height);
+    } else {
+      float radius = 10 + random.nextFloat() * 30;
+      int sides = 3 + random.nextInt(5);
+      double start = random.nextDouble();
+      for (int i = 0; i < sides; i++) {
+        double angle = (start + i) * 2 * Math.PI / sides;
+        builder.add((float) (Math.cos(angle) * radius), (float) (Math.sin(angle) * radius));
+      }
+    }
+    Polygon raw = builder.build();
+    Shape shape = raw.copy();
+    raw.transform(random.nextFloat() * 360, 0.5f + random.nextFloat(), shape);
+    return shape;
+  }
+
+  /**
+   * Works out from the exact geometry whether shape a at (x, y) overlaps
+   * shape b at the origin. Returns 1 if they overlap, -1 if they are apart
+   * and 0 if they are too close to call.
+   */
+  private static int overlap(Shape a, float x, float y, Shape b) {
+    if (a instanceof Circle && b instanceof Circle) {
+      return compare(Math.hypot(x, y) - a.radius - b.radius);
+    }
+    if (a instanceof Circle) {
+      return overlap(corners(b, 0, 0), x, y, a.radius);
+    }
+    if (b instanceof Circle) {
+      return overlap(corners(a, x, y), 0, 0, b.radius);
+    }
+
+    double[] first = corners(a, x, y);
+    double[] second = corners(b, 0, 0);
+    if (crosses(first, second) || contains(first, second[0], second[1])
+        || contains(second, first[0], first[1])) {
+      return 1;
+    }
+    double distance = Double.MAX_VALUE;
+    for (int i = 0; i < first.length; i += 2) {
+      distance = Math.min(distance, distanceToEdges(second, first[i], first[i + 1]));
+    }
+    for (int i = 0; i < second.length; i += 2) {
+      distance = Math.min(distance, distanceToEdges(first, second[i], second[i + 1]));
+    }
+    return compare(distance) == 0 ? 0 : -1;
+  }
+
+  /** Compares a polygon with a circle of the given radius at (x, y). */
+  private static int overlap(double[] corners, double x, double y, double radius) {
+    if (contains(corners, x, y)) {
+      return 1;
+    }
+    return compare(distanceToEdges(corners, x, y) - radius);
+  }
+
+  /**
+   * Returns 1 if a distance between two shapes means they overlap, -1 if
+   * they are apart, and 0 if it is too close to call.
+   */
+  private static int compare(double distance) {
+    if (distance < -SHAPE_TOLERANCE) {
+      return 1;
+    }
+    return distance > SHAPE_TOLERANCE ? -1 : 0;
+  }
+
+  /** Returns the corners of a polygon placed at (x, y), as x, y pairs. */
+  private static double[] corners(Shape shape, float x, float y) {
+    Vector2d[] points = ((Polygon) shape).points;
+    double[] corners = new double[points.length * 2];
+    for (int i = 0; i < points.length; i++) {
+      corners[i * 2] = points[i].x + x;
+      corners[i * 2 + 1] = points[i].y + y;
+    }
+    return corners;
+  }
+
+  /**
+   * Returns true if the point is inside the convex polygon, or on its
+   * edge: on the same side of every edge.
+   */
+  private static boolean contains(double[] corners, double x, double y) {
+    int side = 0;
+    for (int i = 0; i < corners.length; i += 2) {
+      int j = (i + 2) % corners.length;
+      double cross = cross(corners[i], corners[i + 1], corners[j], corners[j + 1], x, y);
+      int sign = cross > 0 ? 1 : cross < 0 ? -1 : 0;
+      if (sign != 0) {
+        if (side != 0 && sign != side) {
+          return false;
+        }
+        side = sign;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if any edge of one polygon properly crosses one of the other's. */
+  private static boolean crosses(double[] first, double[] second) {
+    for (int i = 0; i < first.length; i += 2) {
+      int i2 = (i + 2) % first.length;
+      for (int j = 0; j < second.length; j += 2) {
+        int j2 = (j + 2) % second.length;
+        double ax = first[i], ay = first[i + 1], bx = first[i2], by = first[i2 + 1];
+        double cx = second[j], cy = second[j + 1], dx = second[j2], dy = second[j2 + 1];
+        if (cross(cx, cy, dx, dy, ax, ay) * cross(cx, cy, dx, dy, bx, by) < 0
+            && cross(ax, ay, bx, by, cx, cy) * cross(ax, ay, bx, by, dx, dy) < 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Returns the distance from a point to the nearest edge of a polygon. */
+  private static double distanceToEdges(double[] corners, double x, double y) {
+    double nearest = Double.MAX_VALUE;
+    for (int i = 0; i < corners.length; i += 2) {
+      int j = (i + 2) % corners.length;
+      double ax = corners[i];
+      double ay = corners[i + 1];
+      double dX = corners[j] - ax;
+      double dY = corners[j + 1] - ay;
+      double t = ((x - ax) * dX + (y - ay) * dY) / (dX * dX + dY * dY);
+      t = Math.max(0, Math.min(1, t));
+      nearest = Math.min(nearest, Math.hypot(ax + t * dX - x, ay + t * dY - y));
+    }
+    return nearest;
+  }
+
+  /**
+   * Returns which side of the line from (ax, ay) to (bx, by) the point
+   * (x, y) is on, scaled by how far.
+   */
+  private static double cross(double ax, double ay, double bx, double by, double x, double y) {
+    return (bx - ax) * (y - ay) - (by - ay) * (x - ax);
+  }
+
+  /**
+   * Returns the squared distances to every enabled entity in the layers
+   * within the radius of a point, nearest first.
+   */
+  private float[] nearest(float x, float y, float radius, int layers, Entity exclude) {
+    List<Float> distances = new ArrayList<Float>();
+    for (Probe probe : probes) {
+      float distanceSquared = distanceSquared(probe, x, y);
+      if (probe != exclude
+          && probe.enabled
+          && (probe.collide.getCategory() & layers) != 0
+          && distanceSquared <= radius * radius) {
+        distances.add(distanceSquared);
+      }
+    }
+    Collections.sort(distances);
+
+    float[] result = new float[distances.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = distances.get(i);
+    }
+    return result;
+  }
+
+  private static float distanceSquared(Entity entity, float x, float y) {
+    float dX = entity.x - x;
+    float dY = entity.y - y;
+    return dX * dX + dY * dY;
+  }
+
+  /** Returns a point anywhere in the level, or a little way outside it. */
+  private float randomX() {
+    return random.nextFloat() * (level.getWidth() + 200) - 100;
+  }
+
+  private float randomY() {
+    return random.nextFloat() * (level.getHeight() + 200) - 100;
+  }
+
+  /** Returns how far a line goes along one axis, usually a short way. */
+  private float randomLength() {
+    float length = random.nextInt(10) == 0 ? 2000 : 300;
+    return (random.nextFloat() * 2 - 1) * length;
+  }
+
+  /** Returns one or more of the layers entities are placed in. */
+  private int randomLayers() {
+    int layers = 0;
+    while (layers == 0) {
+      for (int layer : LAYERS) {
+        if (random.nextBoolean()) {
+          layers |= layer;
+        }
+      }
+    }
+    return layers;
+  }
+
+  private void report(Object subject, String check, int cases, int wrong) {
+    print(subject, check, cases, wrong == 0 ? "ok" : wrong + " wrong");
+    if (wrong > 0) {
+      failures++;
+    }
+  }
+
+  private void print(Object subject, String check, int cases, String result) {
+    out.println(String.format("%-18s %-12s %6d cases  %s", subject, check, cases, result));
+  }
+
+  /**
+   * Counts the bytes the current thread has allocated, on platforms that
+   * can. Looked up by reflection, as the management classes are only on
+   * desktop JVMs.
+   */
+  private static final class AllocationCounter {
+
+    private final Object bean;
+    private final Method method;
+    private final Long thread;
+
+    /** The bytes reading the count allocates by itself. */
+    private long overhead;
+
+    private AllocationCounter(Object bean, Method method) {
+      this.bean = bean;
+      this.method = method;
+      this.thread = Thread.currentThread().getId();
+    }
+
+    /** Returns a counter for the current thread, or null if there is no way to count. */
+    static AllocationCounter create() {
+      try {
+        Object bean = Class.forName("java.lang.management.ManagementFactory")
+            .getMethod("getThreadMXBean")
+            .invoke(null);
+        Method method = Class.forName("com.sun.management.ThreadMXBean")
+            .getMethod("getThreadAllocatedBytes", long.class);
+        AllocationCounter counter = new AllocationCounter(bean, method);
+        long first = counter.bytes();
+        counter.overhead = counter.bytes() - first;
+        return first < 0 ? null : counter;
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    long bytes() {
+      try {
+        return (Long) method.invoke(bean, thread);
+      } catch (Exception e) {
+        return -1;
+      }
+    }
+  }
+
+  /** A plain circle placed in the level for the checks to find. */
+  private static final class Probe extends Entity {
+
+    Probe(float x, float y, float radius, int category) {
+      super(x, y);
+      this.radius = radius;
+      this.enabled = true;
+      collide.setBehavior(CollideBehavior.HIT_RECEIVE);
+      collide.setCategory(category);
+    }
+  }
+}